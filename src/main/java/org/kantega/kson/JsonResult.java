@@ -10,26 +10,44 @@ import org.kantega.kson.json.JsonObject;
 import org.kantega.kson.json.JsonValue;
 
 import java.math.BigDecimal;
+import java.util.Objects;
 
+/**
+ * The result of reading or decoding json: a value, or a failure message. Failure messages given as a function are
+ * made the first time they are asked for, so failures that are recovered from never render the values they mention.
+ */
 public class JsonResult<A> {
 
-    final Validation<String, A> validation;
+    final A       value;
+    final Failure failure;
+
+    private JsonResult(A value, Failure failure) {
+        this.value = value;
+        this.failure = failure;
+    }
 
     private JsonResult(Validation<String, A> validation) {
-        this.validation = validation;
+        this(validation.isSuccess() ? validation.success() : null, validation.isFail() ? new Failure(validation.fail()) : null);
     }
 
     public static <A> JsonResult<A> fail(String msg) {
-        return new JsonResult<>(Validation.fail(msg));
+        return new JsonResult<>(null, new Failure(msg));
+    }
+
+    /**
+     * A failure with the message the function makes, when it is asked for
+     */
+    public static <A> JsonResult<A> failLazy(F0<String> msg) {
+        return new JsonResult<>(null, new Failure(msg));
     }
 
     public static <A> JsonResult<A> success(A a) {
-        return new JsonResult<>(Validation.success(a));
+        return new JsonResult<>(a, null);
     }
 
     public static <A> JsonResult<A> tried(F0<A> a) {
         try {
-            return new JsonResult<>(Validation.success(a.f()));
+            return success(a.f());
         } catch (Exception e) {
             return JsonResult.fail(e.getClass().getSimpleName() + ":" + e.getMessage());
         }
@@ -49,15 +67,15 @@ public class JsonResult<A> {
     }
 
     public boolean containsField(String field){
-        return onJsonValue(jsonValue -> JsonResult.success(jsonValue.onObject(fields -> fields.contains(field)).orSome(false))).orElse(()->false);
+        return onJsonValue(jsonValue -> JsonResult.success(jsonValue.field(field).toOption().isSome())).orElse(()->false);
     }
 
     public JsonResult<JsonValue> index(int i) {
-        return asArray().bind(list -> JsonResult.tried(() -> (list.toArray().get(i))));
+        return onJsonValue(json -> json.index(i));
     }
 
     public ArrayResult<JsonValue> asArray() {
-        return new ArrayResult<>(onJsonValue(jsonValue -> jsonValue.onArray(JsonResult::success).orSome(JsonResult.fail("Not an array"))).validation);
+        return ArrayResult.fromResult(onJsonValue(jsonValue -> jsonValue.onArray(JsonResult::success).orSome(JsonResult.fail("Not an array"))));
     }
 
     public JsonResult<JsonObject> asObject(){
@@ -179,15 +197,13 @@ public class JsonResult<A> {
 
 
     public <A> JsonResult<A> onJsonValue(F<JsonValue, JsonResult<A>> f) {
-        return validation.validation(
-          fail -> JsonResult.fail(fail),
-          s -> {
-              if (s instanceof JsonValue) {
-                  return f.f((JsonValue) s);
-              } else
-                  return JsonResult.fail("Not a json value");
-          }
-        );
+        if (failure != null) {
+            return castFailure();
+        }
+        if (value instanceof JsonValue) {
+            return f.f((JsonValue) value);
+        } else
+            return JsonResult.fail("Not a json value");
     }
 
     /**
@@ -195,7 +211,11 @@ public class JsonResult<A> {
      * @return a validation.
      */
     public Validation<String, A> toValidation() {
-        return validation;
+        return failure != null ? Validation.fail(failure.message()) : Validation.success(value);
+    }
+
+    public boolean isSuccess() {
+        return failure == null;
     }
 
     /**
@@ -203,45 +223,72 @@ public class JsonResult<A> {
      * @return An Option
      */
     public Option<A> toOption() {
-        return toValidation().toOption();
+        return failure != null ? Option.none() : Option.some(value);
     }
 
+    /**
+     * The values of the results, in order, or the last of the failures, if any
+     */
     public static <A> JsonResult<List<A>> sequence(List<JsonResult<A>> results) {
-        return results.foldLeft(
-          (memo, result) -> result.bind(a -> memo.map(list -> list.cons(a))),
-          JsonResult.success(List.<A>nil())).map(List::reverse);
+        List.Buffer<A> values = new List.Buffer<>();
+        JsonResult<A>  failed = null;
+        for (JsonResult<A> result : results) {
+            if (result.failure != null) {
+                failed = result;
+            } else if (failed == null) {
+                values.snoc(result.value);
+            }
+        }
+        return failed != null ? failed.castFailure() : success(values.toList());
     }
 
     public <B> JsonResult<B> mod(F<Validation<String, A>, Validation<String, B>> f) {
         try {
-            return new JsonResult<>(f.f(validation));
+            return new JsonResult<>(f.f(toValidation()));
         }catch (Exception e){
-            return new JsonResult<>(Validation.fail("Failed to transform "+toString()+": "+e.getClass().getSimpleName()+"-"+e.getMessage()));
+            return transformFailure(e);
         }
     }
 
     public <T> T fold(F<String, T> onError, F<A, T> onSuccess) {
-        return validation.validation(onError, onSuccess);
+        return failure != null ? onError.f(failure.message()) : onSuccess.f(value);
     }
 
     public JsonResult<A> mapFail(F<String, String> f) {
-        return mod(validation -> validation.f().map(f));
+        return failure != null ? failLazy(() -> f.f(failure.message())) : this;
     }
 
+    /**
+     * Failures are passed on as they are, without making their message
+     */
     public <B> JsonResult<B> map(F<A, B> f) {
-        return mod(v -> v.map(f));
+        if (failure != null) {
+            return castFailure();
+        }
+        try {
+            return success(f.f(value));
+        } catch (Exception e) {
+            return transformFailure(e);
+        }
     }
 
     public <B> JsonResult<B> bind(F<A, JsonResult<B>> f) {
-        return mod(v -> v.map(f).bind(v2 -> v2.validation));
+        if (failure != null) {
+            return castFailure();
+        }
+        try {
+            return Objects.requireNonNull(f.f(value));
+        } catch (Exception e) {
+            return transformFailure(e);
+        }
     }
 
     public A orElse(F0<A> a) {
-        return validation.validation(f -> a.f(), aa -> aa);
+        return failure != null ? a.f() : value;
     }
 
     public A orElse(F<String, A> a) {
-        return validation.validation(a::f, aa -> aa);
+        return failure != null ? a.f(failure.message()) : value;
     }
 
     public JsonResult<A> orResult(F0<JsonResult<A>> other) {
@@ -253,15 +300,27 @@ public class JsonResult<A> {
     }
 
     public A orThrow(F<String, ? extends RuntimeException> supplier) {
-        if (validation.isFail())
-            throw supplier.f(validation.fail());
-        else return validation.success();
+        if (failure != null)
+            throw supplier.f(failure.message());
+        else return value;
+    }
+
+    /**
+     * This failure, as a result of any type. A failure has no value, so it is the same for all types.
+     */
+    @SuppressWarnings("unchecked")
+    private <B> JsonResult<B> castFailure() {
+        return (JsonResult<B>) this;
+    }
+
+    private <B> JsonResult<B> transformFailure(Exception e) {
+        return failLazy(() -> "Failed to transform " + this + ": " + e.getClass().getSimpleName() + "-" + e.getMessage());
     }
 
     @Override
     public String toString() {
         final StringBuffer sb = new StringBuffer("JsonResult{");
-        sb.append(validation.validation(f -> f, Object::toString));
+        sb.append(failure != null ? failure.message() : String.valueOf(value));
         sb.append('}');
         return sb.toString();
     }
@@ -272,13 +331,49 @@ public class JsonResult<A> {
             super(validation);
         }
 
+        private ArrayResult(List<A> value, Failure failure) {
+            super(value, failure);
+        }
+
+        /**
+         * The result as an ArrayResult, without making its failure message
+         */
+        public static <A> ArrayResult<A> fromResult(JsonResult<List<A>> result) {
+            return result instanceof ArrayResult ? (ArrayResult<A>) result : new ArrayResult<>(result.value, result.failure);
+        }
+
         public <B> ArrayResult<B> mapArray(F<A, B> f) {
-            return new ArrayResult<B>(validation.map(list -> list.map(f)));
+            return fromResult(map(list -> list.map(f)));
         }
 
         public <B> ArrayResult<B> mapFlattenArray(F<A, JsonResult<B>> f) {
-            return new ArrayResult<B>(validation.bind(list -> JsonResult.sequence(list.map(f)).validation));
+            return fromResult(bind(list -> JsonResult.sequence(list.map(f))));
+        }
+    }
+
+    /**
+     * A failure message, made from the function the first time it is asked for
+     */
+    static final class Failure {
+        private final    F0<String> message;
+        private volatile String     rendered;
+
+        Failure(String message) {
+            this.message = null;
+            this.rendered = message;
+        }
+
+        Failure(F0<String> message) {
+            this.message = message;
+        }
 
+        String message() {
+            String rendered = this.rendered;
+            if (rendered == null && message != null) {
+                rendered = message.f();
+                this.rendered = rendered;
+            }
+            return rendered;
         }
     }
 }
@@ -24,14 +24,14 @@ public class JsonCodecs {
       JsonCodec(bigDecimalEncoder, bigDecimalDecoder);
 
     public static JsonCodec<Integer> intCodec =
-      bigDecimalCodec.xmap(BigDecimal::valueOf, BigDecimal::intValue);
+      JsonCodec(integerEncoder, intDecoder);
 
     public static JsonCodec<Long> longCodec =
-      bigDecimalCodec.xmap(BigDecimal::valueOf, BigDecimal::longValue);
+      JsonCodec(bigDecimalEncoder.contramap(BigDecimal::valueOf), longDecoder);
 
 
     public static JsonCodec<Double> doubleCodec =
-      bigDecimalCodec.xmap(BigDecimal::valueOf, BigDecimal::doubleValue);
+      JsonCodec(bigDecimalEncoder.contramap(BigDecimal::valueOf), doubleDecoder);
 
     public static JsonCodec<Boolean> booleanCodec =
       JsonCodec(boolEncoder, boolDecoder);
@@ -3,12 +3,18 @@ package org.kantega.kson.codec;
 import fj.F;
 import org.kantega.kson.JsonResult;
 import org.kantega.kson.json.JsonValue;
+import org.kantega.kson.parser.JsonReader;
+
+import java.io.IOException;
 
 /**
  * A JsonDecoder can convert a JsonValue to some domain object.
  * The result is wrapped in a JsonResult, since conversion from an untyped datastructure
  * is error-prone.
  * One need a mechanism to capture possible outcomes of the conversion.
+ * <p>
+ * Decoders can also decode directly from the tokens of a JsonReader, without building the JsonValue first. The
+ * decoders in JsonDecoders do that, other decoders read the value from the reader and decode that.
  *
  * @param <A> The type of the value the decoder creates
  */
@@ -26,6 +32,18 @@ public interface JsonDecoder<A> extends F<JsonValue, JsonResult<A>> {
      */
     JsonResult<A> decode(JsonValue v);
 
+    /**
+     * Decodes the value the reader is positioned at into a domain object. The whole value is consumed, also if the
+     * decoding fails, leaving the reader at the last token of the value.
+     *
+     * @param reader The reader, positioned at the first token of the value
+     * @return The conversion result.
+     * @throws IOException if the reader fails to read its input
+     */
+    default JsonResult<A> decode(JsonReader reader) throws IOException {
+        return decode(reader.readValue());
+    }
+
     /**
      * Adapt the output of this codec into a value in your domain.
      *
@@ -34,7 +52,9 @@ public interface JsonDecoder<A> extends F<JsonValue, JsonResult<A>> {
      * @return A decoder that decodes the jsonvalue into your value.
      */
     default <B> JsonDecoder<B> map(F<A, B> f) {
-        return v -> this.decode(v).map(f);
+        return JsonDecoders.decoder(
+            v -> this.decode(v).map(f),
+            reader -> this.decode(reader).map(f));
     }
 
     /**
@@ -85,10 +105,13 @@ public interface JsonDecoder<A> extends F<JsonValue, JsonResult<A>> {
      * @return A new decoder that fails if the predicate does not hold.
      */
     default JsonDecoder<A> ensure(F<A, Boolean> pred, F<A, String> msg) {
-        return v ->
-            this.decode(v).bind(decoded ->
+        F<A, JsonResult<A>> check =
+            decoded ->
                 pred.f(decoded) ?
                 JsonResult.success(decoded) :
-                JsonResult.fail(msg.f(decoded)));
+                JsonResult.fail(msg.f(decoded));
+        return JsonDecoders.decoder(
+            v -> this.decode(v).bind(check),
+            reader -> this.decode(reader).bind(check));
     }
 }
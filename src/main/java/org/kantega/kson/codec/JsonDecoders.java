@@ -7,10 +7,15 @@ import fj.data.TreeMap;
 import fj.function.Try1;
 import org.kantega.kson.JsonConversionFailure;
 import org.kantega.kson.JsonResult;
+import org.kantega.kson.json.JsonArray;
+import org.kantega.kson.json.JsonNumber;
 import org.kantega.kson.json.JsonObject;
 import org.kantega.kson.json.JsonValue;
+import org.kantega.kson.parser.JsonReader;
+import org.kantega.kson.parser.JsonToken;
 import org.kantega.kson.util.Products;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 
 import static fj.P.p;
@@ -19,87 +24,185 @@ import static org.kantega.kson.JsonResult.*;
 public class JsonDecoders {
 
     public static final JsonDecoder<String> stringDecoder =
-        JsonValue::asText;
+        decoder(
+            JsonValue::asText,
+            reader ->
+                reader.currentToken() == JsonToken.STRING ?
+                success(reader.stringValue()) :
+                reader.readValue().asText());
 
     public static final JsonDecoder<BigDecimal> bigDecimalDecoder =
-        JsonValue::asNumber;
+        decoder(
+            JsonValue::asNumber,
+            reader ->
+                reader.currentToken() == JsonToken.NUMBER ?
+                success(reader.numberValue()) :
+                reader.readValue().asNumber());
 
     public static final JsonDecoder<Integer> intDecoder =
-        bigDecimalDecoder.map(BigDecimal::intValue);
+        numberDecoder(JsonNumber::intValue, BigDecimal::intValue, JsonReader::intValue);
+
+    public static final JsonDecoder<Long> longDecoder =
+        numberDecoder(JsonNumber::longValue, BigDecimal::longValue, JsonReader::longValue);
+
+    public static final JsonDecoder<Double> doubleDecoder =
+        numberDecoder(JsonNumber::doubleValue, BigDecimal::doubleValue, JsonReader::doubleValue);
 
     public static final JsonDecoder<Boolean> boolDecoder =
-        JsonValue::asBool;
+        decoder(
+            JsonValue::asBool,
+            reader ->
+                reader.currentToken() == JsonToken.TRUE || reader.currentToken() == JsonToken.FALSE ?
+                success(reader.booleanValue()) :
+                reader.readValue().asBool());
+
+    /**
+     * Decodes numbers into primitives straight from the text of the number, without going through a BigDecimal.
+     * Other json values are decoded with asNumber(), which gives the failure.
+     */
+    private static <A> JsonDecoder<A> numberDecoder(F<JsonNumber, A> fromNumber, F<BigDecimal, A> fromDecimal, F<JsonReader, A> fromToken) {
+        JsonDecoder<A> valueDecoder =
+            v ->
+                v.kind() == JsonValue.Kind.NUMBER ?
+                success(fromNumber.f((JsonNumber) v)) :
+                v.asNumber().map(fromDecimal);
+        return decoder(
+            valueDecoder,
+            reader ->
+                reader.currentToken() == JsonToken.NUMBER ?
+                success(fromToken.f(reader)) :
+                valueDecoder.decode(reader.readValue()));
+    }
 
     public static <A> JsonDecoder<Option<A>> optionDecoder(JsonDecoder<A> da) {
-        return v ->
-            v
-                .onNull(() -> success(Option.<A>none()))
-                .orSome(da.decode(v).map(Option::some));
+        return decoder(
+            v ->
+                isNull(v) ?
+                success(Option.none()) :
+                da.decode(v).map(Option::some),
+            reader ->
+                reader.currentToken() == JsonToken.NULL ?
+                success(Option.none()) :
+                da.decode(reader).map(Option::some));
     }
 
     public static <A> JsonDecoder<List<A>> arrayDecoder(JsonDecoder<A> ad) {
-        return v ->
-            v.onArray(list -> sequence(list.map(ad))).orSome(fail(v.toString() + " does not represent an array"));
+        JsonDecoder<List<A>> valueDecoder =
+            v ->
+                v.kind() == JsonValue.Kind.ARRAY ?
+                decodeElements((JsonArray) v, ad) :
+                v.onArray(list -> sequence(list.map(ad))).orSome(failLazy(() -> v + " does not represent an array"));
+        return decoder(
+            valueDecoder,
+            reader -> {
+                if (reader.currentToken() != JsonToken.START_ARRAY) {
+                    return valueDecoder.decode(reader.readValue());
+                }
+                List.Buffer<A> values = new List.Buffer<>();
+                JsonResult<A>  failed = null;
+                while (reader.nextToken() != JsonToken.END_ARRAY) {
+                    JsonResult<A> decoded = ad.decode(reader);
+                    if (!decoded.isSuccess()) {
+                        failed = decoded;
+                    } else if (failed == null) {
+                        values.snoc(decoded.orThrow());
+                    }
+                }
+                return elementsResult(values, failed);
+            });
     }
 
     public static <A> JsonDecoder<A> arrayIndexDecoder(int i, JsonDecoder<A> ad) {
         return v ->
-            v
-                .onArray(list -> tried(() -> ad.decode(list.toArray().get(i))).bind(x -> x))
-                .orSome(fail(v.toString() + " does not represent an array"));
+            v.kind() == JsonValue.Kind.ARRAY ?
+            tried(() -> ad.decode(((JsonArray) v).get(i))).bind(x -> x) :
+            v.onArray(list -> tried(() -> ad.decode(list.toArray().get(i))).bind(x -> x)).orSome(() -> failLazy(() -> v + " does not represent an array"));
     }
 
     public static <A> JsonDecoder<TreeMap<String, A>> fieldsDecoder(JsonDecoder<A> aDecoder) {
-        return v ->
-            v.onObject(props ->
-                sequence(
-                    props
-                        .toList()
-                        .map(p2 -> aDecoder.decode(p2._2()).map(a -> P.p(p2._1(), a)))
-                ).map(list -> TreeMap.iterableTreeMap(Ord.stringOrd, list)))
-                .orSome(fail(v + "is not an object"));
+        JsonDecoder<TreeMap<String, A>> valueDecoder =
+            v ->
+                v.kind() == JsonValue.Kind.OBJECT ?
+                decodeFields(((JsonObject) v).toList(), aDecoder) :
+                v.onObject(props -> decodeFields(props.toList(), aDecoder)).orSome(failLazy(() -> v + "is not an object"));
+        return decoder(
+            valueDecoder,
+            reader -> {
+                if (reader.currentToken() != JsonToken.START_OBJECT) {
+                    return valueDecoder.decode(reader.readValue());
+                }
+                TreeMap<String, JsonResult<P2<String, A>>> decoded = TreeMap.empty(Ord.stringOrd);
+                while (reader.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = reader.currentName();
+                    reader.nextToken();
+                    decoded = decoded.set(name, aDecoder.decode(reader).map(a -> P.p(name, a)));
+                }
+                return sequence(decoded.values()).map(list -> TreeMap.iterableTreeMap(Ord.stringOrd, list));
+            });
     }
 
     public static <A> FieldDecoder<A> field(String name, JsonDecoder<A> valueDecoder) {
-        return obj ->
-            obj.get(name)
-                .option(
-                    fail("No field with name " + name),
-                    v ->
-                        valueDecoder
-                            .decode(v)
-                            .mapFail(str -> "Failure while decoding field " + name + ": " + str));
+        return new NamedFieldDecoder<A>(name) {
+            @Override
+            JsonResult<A> absent() {
+                return fail("No field with name " + name);
+            }
+
+            @Override
+            JsonResult<A> present(JsonValue v) {
+                return valueDecoder
+                    .decode(v)
+                    .mapFail(str -> "Failure while decoding field " + name + ": " + str);
+            }
+
+            @Override
+            JsonResult<A> present(JsonReader reader) throws IOException {
+                return valueDecoder
+                    .decode(reader)
+                    .mapFail(str -> "Failure while decoding field " + name + ": " + str);
+            }
+        };
     }
 
     public static <A> FieldDecoder<Option<A>> optionalField(String name, JsonDecoder<A> valueDecoder) {
-        return obj ->
-            obj.get(name)
-                .option(
-                    success(Option.<A>none()),
-                    v -> {
-                        boolean isNull =
-                            v.onNull(() -> true).isSome();
-
-                        return
-                            isNull ?
-                            success(Option.none()) :
-                            valueDecoder
-                                .decode(v)
-                                .map(Option::some)
-                                .mapFail(str -> "Failure while decoding field " + name + ": " + str);
-                    });
+        return new NamedFieldDecoder<Option<A>>(name) {
+            @Override
+            JsonResult<Option<A>> absent() {
+                return success(Option.none());
+            }
+
+            @Override
+            JsonResult<Option<A>> present(JsonValue v) {
+                return
+                    isNull(v) ?
+                    success(Option.none()) :
+                    valueDecoder
+                        .decode(v)
+                        .map(Option::some)
+                        .mapFail(str -> "Failure while decoding field " + name + ": " + str);
+            }
+
+            @Override
+            JsonResult<Option<A>> present(JsonReader reader) throws IOException {
+                return
+                    reader.currentToken() == JsonToken.NULL ?
+                    success(Option.none()) :
+                    valueDecoder
+                        .decode(reader)
+                        .map(Option::some)
+                        .mapFail(str -> "Failure while decoding field " + name + ": " + str);
+            }
+        };
     }
 
     public static <A> JsonDecoder<A> obj(FieldDecoder<A> ad) {
-        return v ->
-            v.onObject(ad::apply).orSome(notAnObjectFailMsg(v));
+        return new ObjectDecoder<>(ad, ad);
     }
 
     public static <A, B> JsonDecoder<P2<A, B>> obj(
         FieldDecoder<A> a,
         FieldDecoder<B> b) {
-        return v ->
-            v.onObject(pair(a, b)::apply).orSome(notAnObjectFailMsg(v));
+        return new ObjectDecoder<>(pair(a, b), a, b);
     }
 
     public static <A, B, C> JsonDecoder<C> obj(
@@ -113,10 +216,7 @@ public class JsonDecoders {
         FieldDecoder<A> a,
         FieldDecoder<B> b,
         FieldDecoder<C> c) {
-        return v ->
-            v
-                .onObject(obj -> pair(a, pair(b, c)).apply(obj).map(Products::flatten3))
-                .orSome(notAnObjectFailMsg(v));
+        return new ObjectDecoder<>(pair(a, pair(b, c)).map(Products::flatten3), a, b, c);
     }
 
     public static <A, B, C, D> JsonDecoder<D> obj(
@@ -132,10 +232,7 @@ public class JsonDecoders {
         FieldDecoder<B> b,
         FieldDecoder<C> c,
         FieldDecoder<D> d) {
-        return v ->
-            v
-                .onObject(obj -> pair(a, pair(b, pair(c, d))).apply(obj).map(Products::flatten4))
-                .orSome(notAnObjectFailMsg(v));
+        return new ObjectDecoder<>(pair(a, pair(b, pair(c, d))).map(Products::flatten4), a, b, c, d);
     }
 
     public static <A, B, C, D, E> JsonDecoder<E> obj(
@@ -153,10 +250,7 @@ public class JsonDecoders {
         FieldDecoder<C> c,
         FieldDecoder<D> d,
         FieldDecoder<E> e) {
-        return v ->
-            v
-                .onObject(obj -> pair(a, pair(b, pair(c, pair(d, e)))).apply(obj).map(Products::flatten5))
-                .orSome(notAnObjectFailMsg(v));
+        return new ObjectDecoder<>(pair(a, pair(b, pair(c, pair(d, e)))).map(Products::flatten5), a, b, c, d, e);
     }
 
     public static <A, B, C, D, E, FF> JsonDecoder<FF> obj(
@@ -176,10 +270,7 @@ public class JsonDecoders {
         FieldDecoder<D> d,
         FieldDecoder<E> e,
         FieldDecoder<FF> f) {
-        return v ->
-            v
-                .onObject(obj -> pair(a, pair(b, pair(c, pair(d, pair(e, f))))).apply(obj).map(Products::flatten6))
-                .orSome(notAnObjectFailMsg(v));
+        return new ObjectDecoder<>(pair(a, pair(b, pair(c, pair(d, pair(e, f))))).map(Products::flatten6), a, b, c, d, e, f);
     }
 
     public static <A, B, C, D, E, FF, G> JsonDecoder<G> obj(
@@ -201,10 +292,7 @@ public class JsonDecoders {
         FieldDecoder<E> e,
         FieldDecoder<FF> f,
         FieldDecoder<G> g) {
-        return v ->
-            v
-                .onObject(obj -> pair(a, pair(b, pair(c, pair(d, pair(e, pair(f, g)))))).apply(obj).map(Products::flatten7))
-                .orSome(notAnObjectFailMsg(v));
+        return new ObjectDecoder<>(pair(a, pair(b, pair(c, pair(d, pair(e, pair(f, g)))))).map(Products::flatten7), a, b, c, d, e, f, g);
     }
 
     public static <A, B, C, D, E, FF, G, H> JsonDecoder<H> obj(
@@ -228,10 +316,7 @@ public class JsonDecoders {
         FieldDecoder<FF> f,
         FieldDecoder<G> g,
         FieldDecoder<H> h) {
-        return v ->
-            v
-                .onObject(obj -> pair(a, pair(b, pair(c, pair(d, pair(e, pair(f, pair(g, h))))))).apply(obj).map(Products::flatten8))
-                .orSome(notAnObjectFailMsg(v));
+        return new ObjectDecoder<>(pair(a, pair(b, pair(c, pair(d, pair(e, pair(f, pair(g, h))))))).map(Products::flatten8), a, b, c, d, e, f, g, h);
     }
 
     public static <A, B, C, D, E, FF, G, H, I> JsonDecoder<I> obj(
@@ -250,9 +335,11 @@ public class JsonDecoders {
     public static <A> JsonDecoder<A> objE(Try1<JsonResult<JsonObject>, A, JsonConversionFailure> f) {
         return value -> {
             JsonResult<JsonObject> jobj =
+                value.kind() == JsonValue.Kind.OBJECT ?
+                success((JsonObject) value) :
                 value
                     .onObject(map -> success(new JsonObject(map)))
-                    .orSome(fail(value + " is not a json object"));
+                    .orSome(failLazy(() -> value + " is not a json object"));
             try {
                 return success(f.f(jobj));
             } catch (JsonConversionFailure e) {
@@ -270,12 +357,17 @@ public class JsonDecoders {
                 decoderList
                     .find(pair -> pair._1().equals(type))
                     .option(
-                        fail("No decoder was registererd for type " + type),
+                        failLazy(() -> "No decoder was registererd for type " + type),
                         found -> found._2().decode(v)
                     )
             );
     }
 
+    /**
+     * Decodes a field (or a combination of fields) from the fields of an object.
+     * The field decoders created by field() and optionalField() (and their mapped variants) know the name of the
+     * field they decode, which lets obj() decode them directly from the tokens of a JsonReader.
+     */
     public interface FieldDecoder<A> {
         JsonResult<A> apply(TreeMap<String, JsonValue> fields);
 
@@ -289,7 +381,22 @@ public class JsonDecoders {
     }
 
     private static <A, B> FieldDecoder<P2<A, B>> pair(FieldDecoder<A> ad, FieldDecoder<B> bd) {
-        return fields -> ad.apply(fields).bind(a -> bd.apply(fields).map(b -> p(a, b)));
+        if (!(ad instanceof StreamedFieldDecoder) || !(bd instanceof StreamedFieldDecoder)) {
+            return fields -> ad.apply(fields).bind(a -> bd.apply(fields).map(b -> p(a, b)));
+        }
+        StreamedFieldDecoder<A> streamedA = (StreamedFieldDecoder<A>) ad;
+        StreamedFieldDecoder<B> streamedB = (StreamedFieldDecoder<B>) bd;
+        return new StreamedFieldDecoder<P2<A, B>>() {
+            @Override
+            public JsonResult<P2<A, B>> apply(TreeMap<String, JsonValue> fields) {
+                return ad.apply(fields).bind(a -> bd.apply(fields).map(b -> p(a, b)));
+            }
+
+            @Override
+            JsonResult<P2<A, B>> apply(DecodedFields fields) {
+                return streamedA.apply(fields).bind(a -> streamedB.apply(fields).map(b -> p(a, b)));
+            }
+        };
     }
 
     public static <A, B> JsonDecoder<P2<A, B>> and(JsonDecoder<A> aDecoder, JsonDecoder<B> bDecoder) {
@@ -300,7 +407,221 @@ public class JsonDecoders {
         return and(aDecoder, bDecoder).map(t -> join.f(t._1(), t._2()));
     }
 
+    private static <A> JsonResult<List<A>> decodeElements(JsonArray array, JsonDecoder<A> ad) {
+        List.Buffer<A> values = new List.Buffer<>();
+        JsonResult<A>  failed = null;
+        int            length = array.length();
+        for (int i = 0; i < length; i++) {
+            JsonResult<A> decoded = ad.decode(array.get(i));
+            if (!decoded.isSuccess()) {
+                failed = decoded;
+            } else if (failed == null) {
+                values.snoc(decoded.orThrow());
+            }
+        }
+        return elementsResult(values, failed);
+    }
+
+    /**
+     * The same as sequence() gives for the decoded elements: the last failure, if any
+     */
+    private static <A> JsonResult<List<A>> elementsResult(List.Buffer<A> values, JsonResult<A> failed) {
+        return failed != null ? failed.map(a -> List.nil()) : success(values.toList());
+    }
+
+    private static <A> JsonResult<TreeMap<String, A>> decodeFields(List<P2<String, JsonValue>> fields, JsonDecoder<A> aDecoder) {
+        return sequence(fields.map(p2 -> aDecoder.decode(p2._2()).map(a -> P.p(p2._1(), a))))
+            .map(list -> TreeMap.iterableTreeMap(Ord.stringOrd, list));
+    }
+
+    private static boolean isNull(JsonValue v) {
+        return v.kind() == JsonValue.Kind.NULL || v.kind() == JsonValue.Kind.OTHER && v.onNull(() -> true).isSome();
+    }
+
     private static <A> JsonResult<A> notAnObjectFailMsg(JsonValue v) {
-        return fail("Tried to decode an object but i got a" + v.toString() + ". Did you use the right decoder?");
+        return failLazy(() -> "Tried to decode an object but i got a" + v + ". Did you use the right decoder?");
+    }
+
+    interface TokenDecoder<A> {
+        JsonResult<A> decode(JsonReader reader) throws IOException;
+    }
+
+    /**
+     * Creates a decoder that decodes JsonValues with the valueDecoder, and the tokens of a JsonReader with the tokenDecoder.
+     * The two must yield the same results and failure messages for the same json.
+     */
+    static <A> JsonDecoder<A> decoder(JsonDecoder<A> valueDecoder, TokenDecoder<A> tokenDecoder) {
+        return new JsonDecoder<A>() {
+            @Override
+            public JsonResult<A> decode(JsonValue v) {
+                return valueDecoder.decode(v);
+            }
+
+            @Override
+            public JsonResult<A> decode(JsonReader reader) throws IOException {
+                return tokenDecoder.decode(reader);
+            }
+        };
+    }
+
+    /**
+     * A field decoder that obj() can also apply to the fields it has decoded from the tokens of a JsonReader.
+     * Named field decoders are streamed, and so are the pairs and mappings of streamed ones.
+     */
+    private static abstract class StreamedFieldDecoder<A> implements FieldDecoder<A> {
+
+        abstract JsonResult<A> apply(DecodedFields fields);
+
+        @Override
+        public <B> FieldDecoder<B> map(F<A, B> f) {
+            StreamedFieldDecoder<A> self = this;
+            return new StreamedFieldDecoder<B>() {
+                @Override
+                public JsonResult<B> apply(TreeMap<String, JsonValue> fields) {
+                    return self.apply(fields).map(f);
+                }
+
+                @Override
+                JsonResult<B> apply(DecodedFields fields) {
+                    return self.apply(fields).map(f);
+                }
+            };
+        }
+    }
+
+    /**
+     * A field decoder that knows the name of the field it decodes.
+     */
+    private static abstract class NamedFieldDecoder<A> extends StreamedFieldDecoder<A> {
+
+        final String name;
+
+        NamedFieldDecoder(String name) {
+            this.name = name;
+        }
+
+        abstract JsonResult<A> absent();
+
+        abstract JsonResult<A> present(JsonValue v);
+
+        abstract JsonResult<A> present(JsonReader reader) throws IOException;
+
+        @Override
+        public JsonResult<A> apply(TreeMap<String, JsonValue> fields) {
+            Option<JsonValue> field = fields.get(name);
+            return field.isSome() ? present(field.some()) : absent();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        JsonResult<A> apply(DecodedFields fields) {
+            Option<JsonResult<?>> result = fields.results.get(name);
+            return
+                result.isSome() ?
+                (JsonResult<A>) result.some() :
+                apply(fields.values);
+        }
+
+        @Override
+        public <B> FieldDecoder<B> map(F<A, B> f) {
+            NamedFieldDecoder<A> self = this;
+            return new NamedFieldDecoder<B>(name) {
+                @Override
+                JsonResult<B> absent() {
+                    return self.absent().map(f);
+                }
+
+                @Override
+                JsonResult<B> present(JsonValue v) {
+                    return self.present(v).map(f);
+                }
+
+                @Override
+                JsonResult<B> present(JsonReader reader) throws IOException {
+                    return self.present(reader).map(f);
+                }
+            };
+        }
+    }
+
+    /**
+     * The fields of an object read from the tokens of a JsonReader. A field that only one named field decoder asks
+     * for is decoded by it as it is read, and kept as the result. A field that several ask for is read as a value.
+     */
+    private static final class DecodedFields {
+
+        final TreeMap<String, JsonResult<?>> results;
+        final TreeMap<String, JsonValue>     values;
+
+        DecodedFields(TreeMap<String, JsonResult<?>> results, TreeMap<String, JsonValue> values) {
+            this.results = results;
+            this.values = values;
+        }
+    }
+
+    /**
+     * Decodes objects with a FieldDecoder. If all the field decoders it is composed of are named, the object is decoded
+     * directly from the tokens of a JsonReader: fields no one asks for are skipped, and the values of the others are
+     * decoded by their field decoder as they are read. The composed FieldDecoder then sees a map of the decoded fields only.
+     */
+    private static final class ObjectDecoder<A> implements JsonDecoder<A> {
+
+        private final FieldDecoder<A>                                     fieldDecoder;
+        private final Option<TreeMap<String, List<NamedFieldDecoder<?>>>> namedDecoders;
+
+        ObjectDecoder(FieldDecoder<A> fieldDecoder, FieldDecoder<?>... parts) {
+            this.fieldDecoder = fieldDecoder;
+            List<FieldDecoder<?>> partList = List.arrayList(parts);
+            this.namedDecoders =
+                fieldDecoder instanceof StreamedFieldDecoder && partList.forall(part -> part instanceof NamedFieldDecoder) ?
+                Option.some(partList.foldLeft(
+                    (map, part) -> {
+                        NamedFieldDecoder<?> named = (NamedFieldDecoder<?>) part;
+                        return map.set(named.name, map.get(named.name).orSome(List.nil()).cons(named));
+                    },
+                    TreeMap.<String, List<NamedFieldDecoder<?>>>empty(Ord.stringOrd))) :
+                Option.none();
+        }
+
+        @Override
+        public JsonResult<A> decode(JsonValue v) {
+            if (v.kind() != JsonValue.Kind.OBJECT || namedDecoders.isNone()) {
+                return v.onObject(fieldDecoder::apply).orSome(notAnObjectFailMsg(v));
+            }
+            JsonObject                 obj    = (JsonObject) v;
+            TreeMap<String, JsonValue> fields = TreeMap.empty(Ord.stringOrd);
+            for (String name : namedDecoders.some().keys()) {
+                Option<JsonValue> value = obj.get(name);
+                if (value.isSome()) {
+                    fields = fields.set(name, value.some());
+                }
+            }
+            return fieldDecoder.apply(fields);
+        }
+
+        @Override
+        public JsonResult<A> decode(JsonReader reader) throws IOException {
+            if (reader.currentToken() != JsonToken.START_OBJECT || namedDecoders.isNone()) {
+                return decode(reader.readValue());
+            }
+            TreeMap<String, List<NamedFieldDecoder<?>>> decodersByName = namedDecoders.some();
+            TreeMap<String, JsonResult<?>>              results        = TreeMap.empty(Ord.stringOrd);
+            TreeMap<String, JsonValue>                  values         = TreeMap.empty(Ord.stringOrd);
+            while (reader.nextToken() == JsonToken.FIELD_NAME) {
+                String                     name     = reader.currentName();
+                List<NamedFieldDecoder<?>> decoders = decodersByName.get(name).orSome(List.nil());
+                if (decoders.isEmpty()) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.nextToken();
+                if (decoders.tail().isEmpty()) {
+                    results = results.set(name, decoders.head().present(reader));
+                } else {
+                    values = values.set(name, reader.readValue());
+                }
+            }
+            return ((StreamedFieldDecoder<A>) fieldDecoder).apply(new DecodedFields(results, values));
+        }
     }
 }
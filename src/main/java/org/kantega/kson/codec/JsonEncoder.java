@@ -2,6 +2,9 @@ package org.kantega.kson.codec;
 
 import fj.F;
 import org.kantega.kson.json.JsonValue;
+import org.kantega.kson.parser.JsonWriter;
+
+import java.io.IOException;
 
 /**
  * I JsonEncoder converts from objects of type A to a JsonValue. JsonEncoders can be adapted
@@ -9,6 +12,10 @@ import org.kantega.kson.json.JsonValue;
  * value to the value de encoder knows how to encode:
  *
  * i.e. To encode a userId as a string: JsonDecoders.stringDecoder.contramap(userId -&rarr; userId.stringValue)
+ * <p>
+ * Encoders can also write their value directly to a JsonWriter, without building the JsonValue first. The
+ * encoders in JsonEncoders do that, other encoders encode the value and write that.
+ *
  * @param <A> The type of the values this encoder encodes
  */
 public interface JsonEncoder<A> extends F<A, JsonValue> {
@@ -24,6 +31,17 @@ public interface JsonEncoder<A> extends F<A, JsonValue> {
         return encode(a);
     }
 
+    /**
+     * Writes the value as the next value of the writer. The output must be the same as for writer.writeValue(encode(a)).
+     *
+     * @param a      The value to write
+     * @param writer The writer
+     * @throws IOException if the writer fails to write its output
+     */
+    default void encode(A a, JsonWriter writer) throws IOException {
+        writer.writeValue(encode(a));
+    }
+
     /**
      * Adapt the type of the input so it fits into this codec.
      * @param f The lambda that adapts your domain value into a value this encoder can encode
@@ -31,7 +49,9 @@ public interface JsonEncoder<A> extends F<A, JsonValue> {
      * @return an encoder that can encode your domain values.
      */
     default <B> JsonEncoder<B> contramap(F<B, A> f) {
-        return b -> this.encode(f.f(b));
+        return JsonEncoders.encoder(
+            b -> this.encode(f.f(b)),
+            (b, writer) -> this.encode(f.f(b), writer));
     }
 
 }
@@ -5,10 +5,17 @@ import fj.data.List;
 import fj.data.Option;
 import fj.data.TreeMap;
 import org.kantega.kson.json.JsonObject;
+import org.kantega.kson.json.JsonValue;
 import org.kantega.kson.json.JsonValues;
+import org.kantega.kson.parser.JsonWriter;
 import org.kantega.kson.util.Products;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.kantega.kson.util.Products.*;
 
@@ -21,25 +28,25 @@ public class JsonEncoders {
      * Encoder that encodes strings into json strings
      */
     public static final JsonEncoder<String> stringEncoder =
-        JsonValues::jString;
+        encoder(JsonValues::jString, (string, writer) -> writer.writeString(string));
 
     /**
      * Encoder that encodes bigdecimals into json numbers
      */
     public static final JsonEncoder<BigDecimal> bigDecimalEncoder =
-        JsonValues::jNum;
+        encoder(JsonValues::jNum, (number, writer) -> writer.writeNumber(number));
 
     /**
      * Encoder that encodes boolean values
      */
     public static final JsonEncoder<Boolean> boolEncoder =
-        JsonValues::jBool;
+        encoder(JsonValues::jBool, (bool, writer) -> writer.writeBool(bool));
 
     /**
      * Encoder that encodes integers.
      */
     public static final JsonEncoder<Integer> integerEncoder =
-        bigDecimalEncoder.contramap(BigDecimal::valueOf);
+        encoder(integer -> JsonValues.jNum((long) integer), (integer, writer) -> writer.writeNumber((long) integer));
 
     /**
      * Encoder that encodes optional values.
@@ -48,7 +55,15 @@ public class JsonEncoders {
      * @return an encoder that can encode optional values.
      */
     public static <A> JsonEncoder<Option<A>> optionEncoder(JsonEncoder<A> aEncoder) {
-        return maybeValue -> maybeValue.option(JsonValues.jNull(), aEncoder::encode);
+        return encoder(
+            maybeValue -> maybeValue.option(JsonValues.jNull(), aEncoder::encode),
+            (maybeValue, writer) -> {
+                if (maybeValue.isSome()) {
+                    aEncoder.encode(maybeValue.some(), writer);
+                } else {
+                    writer.writeNull();
+                }
+            });
     }
 
     /**
@@ -59,7 +74,15 @@ public class JsonEncoders {
      * @return an encoder that encodes lists
      */
     public static <A> JsonEncoder<List<A>> arrayEncoder(JsonEncoder<A> aEncoder) {
-        return list -> JsonValues.jArray(list.map(aEncoder::encode));
+        return encoder(
+            list -> JsonValues.jArray(list.map(aEncoder::encode)),
+            (list, writer) -> {
+                writer.writeStartArray();
+                for (A a : list) {
+                    aEncoder.encode(a, writer);
+                }
+                writer.writeEndArray();
+            });
     }
 
     /**
@@ -71,7 +94,16 @@ public class JsonEncoders {
      * @return an encoder that can encode maps
      */
     public static <A> JsonEncoder<TreeMap<String, A>> fieldsEncoder(JsonEncoder<A> aEncoder) {
-        return map -> JsonValues.jObj(map.map(aEncoder::encode));
+        return encoder(
+            map -> JsonValues.jObj(map.map(aEncoder::encode)),
+            (map, writer) -> {
+                writer.writeStartObject();
+                for (P2<String, A> pair : map) {
+                    writer.writeFieldName(pair._1());
+                    aEncoder.encode(pair._2(), writer);
+                }
+                writer.writeEndObject();
+            });
     }
 
     /**
@@ -83,7 +115,7 @@ public class JsonEncoders {
      * @return a special encoder that help construct objects.
      */
     public static <A> FieldEncoder<A> field(String name, JsonEncoder<A> a) {
-        return (obj, va) -> obj.withField(name, a.encode(va));
+        return new NamedFieldEncoder<>(List.single(new NamedField<>(name, a)));
     }
 
     /**
@@ -94,7 +126,9 @@ public class JsonEncoders {
      * @return an encoder that creates json objects
      */
     public static <A> JsonEncoder<A> obj(FieldEncoder<A> fe) {
-        return a -> fe.apply(JsonObject.empty, a);
+        return fe instanceof NamedFieldEncoder ?
+               new ObjectEncoder<>((NamedFieldEncoder<A>) fe) :
+               a -> fe.apply(JsonObject.empty, a);
     }
 
     /**
@@ -123,8 +157,7 @@ public class JsonEncoders {
     public static <A, B> JsonEncoder<P2<A, B>> obj(
         FieldEncoder<A> a,
         FieldEncoder<B> b) {
-        return p ->
-            and(a, b).apply(JsonObject.empty, p);
+        return obj(and(a, b));
     }
 
     /**
@@ -149,8 +182,7 @@ public class JsonEncoders {
         FieldEncoder<A> a,
         FieldEncoder<B> b,
         FieldEncoder<C> c) {
-        return t ->
-            and(a, and(b, c)).apply(JsonObject.empty, expand(t));
+        return obj(and(a, and(b, c))).contramap(t -> expand(t));
     }
 
     public static <A, B, C, X> JsonEncoder<X> obj(
@@ -167,9 +199,7 @@ public class JsonEncoders {
         FieldEncoder<B> b,
         FieldEncoder<C> c,
         FieldEncoder<D> d) {
-        return t ->
-            and(a, and(b, and(c, d)))
-                .apply(JsonObject.empty, expand(t));
+        return obj(and(a, and(b, and(c, d)))).contramap(t -> expand(t));
     }
 
     public static <A, B, C, D, X> JsonEncoder<X> obj(
@@ -187,9 +217,7 @@ public class JsonEncoders {
         FieldEncoder<C> c,
         FieldEncoder<D> d,
         FieldEncoder<E> e) {
-        return t ->
-            and(a, and(b, and(c, and(d, e))))
-                .apply(JsonObject.empty, expand(t));
+        return obj(and(a, and(b, and(c, and(d, e))))).contramap(t -> expand(t));
     }
 
     public static <A, B, C, D, E, X> JsonEncoder<X> obj(
@@ -210,9 +238,7 @@ public class JsonEncoders {
         FieldEncoder<D> d,
         FieldEncoder<E> e,
         FieldEncoder<FF> f) {
-        return t ->
-            and(a, and(b, and(c, and(d, and(e, f)))))
-                .apply(JsonObject.empty, expand(t));
+        return obj(and(a, and(b, and(c, and(d, and(e, f)))))).contramap(t -> expand(t));
     }
 
     public static <A, B, C, D, E, FF, X> JsonEncoder<X> obj(
@@ -234,9 +260,7 @@ public class JsonEncoders {
         FieldEncoder<E> e,
         FieldEncoder<FF> f,
         FieldEncoder<G> g) {
-        return t ->
-            and(a, and(b, and(c, and(d, and(e, and(f, g))))))
-                .apply(JsonObject.empty, expand(t));
+        return obj(and(a, and(b, and(c, and(d, and(e, and(f, g))))))).contramap(t -> expand(t));
     }
 
     public static <A, B, C, D, E, FF, G, X> JsonEncoder<X> obj(
@@ -260,9 +284,7 @@ public class JsonEncoders {
         FieldEncoder<FF> f,
         FieldEncoder<G> g,
         FieldEncoder<H> h) {
-        return t ->
-            and(a, and(b, and(c, and(d, and(e, and(f, and(g, h)))))))
-                .apply(JsonObject.empty, expand(t));
+        return obj(and(a, and(b, and(c, and(d, and(e, and(f, and(g, h)))))))).contramap(t -> expand(t));
     }
 
     public static <A, B, C, D, E, FF, G, H, X> JsonEncoder<X> obj(
@@ -278,12 +300,126 @@ public class JsonEncoders {
         return obj(a, b, c, d, e, ff, g, h).contramap(f);
     }
 
+    /**
+     * Adds a field (or a combination of fields) to an object.
+     * The field encoders created by field() know the name of the field they encode, which lets obj() write them
+     * directly to a JsonWriter.
+     */
     public interface FieldEncoder<A> {
         JsonObject apply(JsonObject obj, A a);
     }
 
+    @SuppressWarnings("unchecked")
     private static <A, B> FieldEncoder<P2<A, B>> and(FieldEncoder<A> fa, FieldEncoder<B> fb) {
+        if (fa instanceof NamedFieldEncoder && fb instanceof NamedFieldEncoder) {
+            return new NamedFieldEncoder<>(
+                ((NamedFieldEncoder<A>) fa).fields.map(field -> field.<P2<A, B>>contramap(P2::_1))
+                    .append(((NamedFieldEncoder<B>) fb).fields.map(field -> field.contramap(P2::_2))));
+        }
         return (obj, t) -> fb.apply(fa.apply(obj, t._1()), t._2());
     }
 
+    interface TokenEncoder<A> {
+        void encode(A a, JsonWriter writer) throws IOException;
+    }
+
+    /**
+     * Creates an encoder that encodes values to JsonValues with the valueEncoder, and writes them to a JsonWriter with
+     * the tokenEncoder. The two must give the same json for the same value.
+     */
+    static <A> JsonEncoder<A> encoder(JsonEncoder<A> valueEncoder, TokenEncoder<A> tokenEncoder) {
+        return new JsonEncoder<A>() {
+            @Override
+            public JsonValue encode(A a) {
+                return valueEncoder.encode(a);
+            }
+
+            @Override
+            public void encode(A a, JsonWriter writer) throws IOException {
+                tokenEncoder.encode(a, writer);
+            }
+        };
+    }
+
+    /**
+     * A field with a name, and the encoder for its value.
+     */
+    private static final class NamedField<A> {
+
+        final String         name;
+        final JsonEncoder<A> encoder;
+
+        NamedField(String name, JsonEncoder<A> encoder) {
+            this.name = name;
+            this.encoder = encoder;
+        }
+
+        <B> NamedField<B> contramap(F<B, A> f) {
+            return new NamedField<>(name, encoder.contramap(f));
+        }
+    }
+
+    /**
+     * A field encoder made of named fields only, that adds them to the object in order.
+     */
+    private static final class NamedFieldEncoder<A> implements FieldEncoder<A> {
+
+        final List<NamedField<A>> fields;
+
+        NamedFieldEncoder(List<NamedField<A>> fields) {
+            this.fields = fields;
+        }
+
+        @Override
+        public JsonObject apply(JsonObject obj, A a) {
+            for (NamedField<A> field : fields) {
+                obj = obj.withField(field.name, field.encoder.encode(a));
+            }
+            return obj;
+        }
+    }
+
+    /**
+     * Encodes objects made of named fields. The fields are written to a JsonWriter in the order a JsonObject keeps
+     * them, sorted by name, and a field that is added more than once is written once, with the last value, so the
+     * output is the same as for the JsonObject. The order, and the names as they are written, are worked out once,
+     * when the encoder is made, so only the values are written for each object.
+     */
+    private static final class ObjectEncoder<A> implements JsonEncoder<A> {
+
+        private final NamedFieldEncoder<A>   fieldEncoder;
+        private final NamedField<A>[]        sorted;
+        private final JsonWriter.FieldName[] names;
+
+        @SuppressWarnings("unchecked")
+        ObjectEncoder(NamedFieldEncoder<A> fieldEncoder) {
+            this.fieldEncoder = fieldEncoder;
+            Map<String, NamedField<A>> last = new HashMap<>();
+            for (NamedField<A> field : fieldEncoder.fields) {
+                last.put(field.name, field);
+            }
+            this.sorted = last.values().toArray(new NamedField[0]);
+            Arrays.sort(sorted, Comparator.comparing(field -> field.name));
+            this.names = new JsonWriter.FieldName[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                names[i] = JsonWriter.fieldName(sorted[i].name);
+            }
+        }
+
+        @Override
+        public JsonValue encode(A a) {
+            return fieldEncoder.apply(JsonObject.empty, a);
+        }
+
+        @Override
+        public void encode(A a, JsonWriter writer) throws IOException {
+            writer.writeStartObject();
+            for (int i = 0; i < sorted.length; i++) {
+                writer.writeFieldName(names[i]);
+                sorted[i].encoder.encode(a, writer);
+            }
+            writer.writeEndObject();
+        }
+    }
+
 }
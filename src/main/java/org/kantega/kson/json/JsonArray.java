@@ -3,32 +3,154 @@ package org.kantega.kson.json;
 
 import fj.Equal;
 import fj.F;
+import fj.F0;
 import fj.data.List;
 import fj.data.Option;
+import fj.data.Seq;
+import org.kantega.kson.JsonResult;
 
+import java.util.Arrays;
+
+/**
+ * A json array. Parsed and constructed arrays keep their values in a flat array, so they can be indexed in constant
+ * time. Appending switches to a Seq, so a series of appends takes constant time per value. The List that onArray()
+ * and values() give is built the first time it is asked for.
+ */
 public class JsonArray extends JsonValue {
 
   public static final Equal<JsonArray> eq =
-      Equal.listEqual(JsonValue.eq()).contramap(arr -> arr.values);
+      Equal.anyEqual();
+
+  public static final JsonArray empty =
+      new JsonArray(new JsonValue[0]);
 
-  public final List<JsonValue> values;
+  private final    JsonValue[]     elements;
+  private final    Seq<JsonValue>  seq;
+  private volatile List<JsonValue> values;
+  private          int             hash;
 
   public JsonArray(List<JsonValue> values) {
+    this.elements = new JsonValue[values.length()];
+    this.seq = null;
     this.values = values;
+    int i = 0;
+    for (JsonValue value : values) {
+      elements[i++] = value;
+    }
+  }
+
+  public JsonArray(Seq<JsonValue> values) {
+    this.elements = null;
+    this.seq = values;
+  }
+
+  private JsonArray(JsonValue[] elements) {
+    this.elements = elements;
+    this.seq = null;
+  }
+
+  /**
+   * Creates an array of the values in elements[from, to). The values are copied, so the source can be reused.
+   */
+  public static JsonArray copyOf(JsonValue[] elements, int from, int to) {
+    return from == to ? empty : new JsonArray(Arrays.copyOfRange(elements, from, to));
+  }
+
+  public int length() {
+    return elements != null ? elements.length : seq.length();
+  }
+
+  /**
+   * The value at index i
+   *
+   * @throws ArrayIndexOutOfBoundsException if i is negative or not less than the length
+   */
+  public JsonValue get(int i) {
+    if (elements != null) {
+      return elements[i];
+    }
+    if (i < 0 || i >= seq.length()) {
+      throw new ArrayIndexOutOfBoundsException("Index " + i + " out of bounds for length " + seq.length());
+    }
+    return seq.index(i);
+  }
+
+  public JsonArray append(JsonValue value) {
+    return new JsonArray(seq().snoc(value));
+  }
+
+  public Seq<JsonValue> seq() {
+    return seq != null ? seq : Seq.arraySeq(elements);
+  }
+
+  /**
+   * The values in a List, in place of the values field that arrays used to have. The List is built the first time it
+   * is asked for.
+   *
+   * @deprecated use get(), length() or seq(), which do not build the List
+   */
+  @Deprecated
+  public List<JsonValue> values() {
+    List<JsonValue> list = values;
+    if (list == null) {
+      list = List.nil();
+      if (elements != null) {
+        for (int i = elements.length - 1; i >= 0; i--) {
+          list = list.cons(elements[i]);
+        }
+      } else {
+        list = seq.toList();
+      }
+      values = list;
+    }
+    return list;
+  }
+
+  @Override
+  public Kind kind() {
+    return Kind.ARRAY;
+  }
+
+  @Override
+  public <T> T fold(F0<T> onNull, F<Boolean, T> onBool, F<JsonNumber, T> onNumber, F<String, T> onString, F<JsonArray, T> onArray, F<JsonObject, T> onObject) {
+    return onArray.f(this);
   }
 
   public <T> Option<T> onArray(F<List<JsonValue>, T> f) {
-    return Option.some(f.f(values));
+    return Option.some(f.f(values()));
+  }
+
+  @Override
+  public JsonResult.ArrayResult<JsonValue> asArray() {
+    return JsonResult.ArrayResult.fromResult(JsonResult.success(values()));
+  }
+
+  @Override
+  public JsonResult<JsonValue> index(int i) {
+    return JsonResult.tried(() -> get(i));
   }
 
   public JsonArray update(F<List<JsonValue>,List<JsonValue>> f){
-    return new JsonArray(f.f(values));
+    return new JsonArray(f.f(values()));
+  }
+
+  @Override
+  public int hashCode() {
+    int h = hash;
+    if (h == 0) {
+      h = 1;
+      for (JsonValue value : elements != null ? Arrays.asList(elements) : seq) {
+        h = 31 * h + value.hashCode();
+      }
+      hash = h;
+    }
+    return h;
   }
 
   @Override
   public String toString() {
     final StringBuffer sb = new StringBuffer("JsonArray{");
-    sb.append(values);
+    sb.append(values());
     sb.append('}');
     return sb.toString();
   }
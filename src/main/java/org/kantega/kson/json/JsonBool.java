@@ -2,7 +2,9 @@ package org.kantega.kson.json;
 
 import fj.Equal;
 import fj.F;
+import fj.F0;
 import fj.data.Option;
+import org.kantega.kson.JsonResult;
 
 public class JsonBool extends JsonValue {
 
@@ -15,14 +17,34 @@ public class JsonBool extends JsonValue {
     this.value = value;
   }
 
+  @Override
+  public Kind kind() {
+    return Kind.BOOL;
+  }
+
+  @Override
+  public <T> T fold(F0<T> onNull, F<Boolean, T> onBool, F<JsonNumber, T> onNumber, F<String, T> onString, F<JsonArray, T> onArray, F<JsonObject, T> onObject) {
+    return onBool.f(value);
+  }
+
   public <T> Option<T> onBool(F<Boolean, T> f) {
     return Option.some(f.f(value));
   }
 
+  @Override
+  public JsonResult<Boolean> asBool() {
+    return JsonResult.success(value);
+  }
+
   public JsonBool update(F<Boolean,Boolean> f){
     return new JsonBool(f.f(value));
   }
 
+  @Override
+  public int hashCode() {
+    return Boolean.hashCode(value);
+  }
+
   @Override
   public String toString() {
     final StringBuffer sb = new StringBuffer("JsonBool{");
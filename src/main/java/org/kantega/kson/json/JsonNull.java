@@ -1,6 +1,7 @@
 package org.kantega.kson.json;
 
 import fj.Equal;
+import fj.F;
 import fj.F0;
 import fj.data.Option;
 
@@ -9,9 +10,24 @@ public class JsonNull extends JsonValue {
   public final static Equal<JsonNull> eq =
       Equal.equal(one -> other -> true);
 
+  @Override
+  public Kind kind() {
+    return Kind.NULL;
+  }
+
+  @Override
+  public <T> T fold(F0<T> onNull, F<Boolean, T> onBool, F<JsonNumber, T> onNumber, F<String, T> onString, F<JsonArray, T> onArray, F<JsonObject, T> onObject) {
+    return onNull.f();
+  }
+
   public <T> Option<T> onNull(F0<T> f) {
     return Option.some(f.f());
   }
+  @Override
+  public int hashCode() {
+    return 0;
+  }
+
   @Override
   public String toString() {
     final StringBuffer sb = new StringBuffer("JsonNull");
@@ -2,34 +2,315 @@ package org.kantega.kson.json;
 
 import fj.Equal;
 import fj.F;
+import fj.F0;
 import fj.data.Option;
+import org.kantega.kson.JsonResult;
+import org.kantega.kson.util.Numbers;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 
+/**
+ * A json number. The number is kept as its text, and converted to a BigDecimal the first time it is asked for.
+ * The primitive values are read straight from the text when it fits, without a BigDecimal.
+ * <p>
+ * Numbers made from a long or a double, and parsed integers and decimals with up to 18 digits, are kept as
+ * primitives instead, and their text is made when it is asked for. They are equal to the numbers kept as text
+ * with the same text.
+ */
 public class JsonNumber extends JsonValue {
 
   public final static Equal<JsonNumber> eq =
-      Equal.stringEqual.contramap(num -> num.value);
+      Equal.stringEqual.contramap(JsonNumber::value);
 
-  public final String value;
+  private static final int MAX_LONG_DIGITS = 18;
+
+  private final String value;
+
+  private BigDecimal decimal;
+
+  private int hash;
 
   public JsonNumber(String value) {
     this.value = value;
   }
 
+  JsonNumber(BigDecimal decimal) {
+    this.value = decimal.toString();
+    this.decimal = decimal;
+  }
+
+  private JsonNumber() {
+    this.value = null;
+  }
+
+  static JsonNumber of(long value) {
+    return new LongNumber(value);
+  }
+
+  static JsonNumber of(double value) {
+    return new DoubleNumber(value);
+  }
+
+  /**
+   * The number of a literal that is the same as the text of its BigDecimal, as a long or an unscaled long and a
+   * scale if it has at most 18 digits, and as text otherwise
+   */
+  static JsonNumber ofCanonical(String literal) {
+    int     length   = literal.length();
+    boolean negative = literal.charAt(0) == '-';
+    long    unscaled = 0;
+    int     digits   = 0;
+    int     scale    = 0;
+    for (int i = negative ? 1 : 0; i < length; i++) {
+      char c = literal.charAt(i);
+      if (c == '.') {
+        scale = length - i - 1;
+      } else if (++digits > MAX_LONG_DIGITS) {
+        return new JsonNumber(literal);
+      } else {
+        unscaled = unscaled * 10 + (c - '0');
+      }
+    }
+    unscaled = negative ? -unscaled : unscaled;
+    return scale == 0 ? new LongNumber(unscaled) : new DecimalNumber(unscaled, scale);
+  }
+
+  /**
+   * The text of the number, in place of the value field that numbers used to have. It is the same as
+   * BigDecimal.toString() gives for parsed numbers and numbers made from a BigDecimal. bigDecimalValue() gives the
+   * BigDecimal, made the first time it is asked for.
+   */
+  public String value() {
+    return value;
+  }
+
+  public BigDecimal bigDecimalValue() {
+    if (decimal == null) {
+      decimal = toBigDecimal();
+    }
+    return decimal;
+  }
+
+  BigDecimal toBigDecimal() {
+    return new BigDecimal(value());
+  }
+
+  /**
+   * If the numbers have equal BigDecimals, compared without making them when both are kept as primitives
+   */
+  boolean sameNumber(JsonNumber other) {
+    try {
+      return bigDecimalValue().equals(other.bigDecimalValue());
+    } catch (NumberFormatException e) {
+      return value().equals(other.value());
+    }
+  }
+
+  /**
+   * The same for numbers with equal BigDecimals. Numbers with exponents too large for a BigDecimal hash their text.
+   */
+  @Override
+  public int hashCode() {
+    int h = hash;
+    if (h == 0) {
+      try {
+        BigDecimal decimal  = bigDecimalValue();
+        BigInteger unscaled = decimal.unscaledValue();
+        h = unscaled.bitLength() < 64 ? hash(unscaled.longValue(), decimal.scale()) : 31 * unscaled.hashCode() + decimal.scale();
+      } catch (NumberFormatException e) {
+        h = value().hashCode();
+      }
+      hash = h;
+    }
+    return h;
+  }
+
+  private static int hash(long unscaled, int scale) {
+    return 31 * Long.hashCode(unscaled) + scale;
+  }
+
+  /**
+   * The value converted the same way as BigDecimal.longValue() does
+   */
+  public long longValue() {
+    return Numbers.longValue(value());
+  }
+
+  /**
+   * The value converted the same way as BigDecimal.intValue() does
+   */
+  public int intValue() {
+    return (int) longValue();
+  }
+
+  /**
+   * The value converted the same way as BigDecimal.doubleValue() does
+   */
+  public double doubleValue() {
+    return Numbers.doubleValue(value());
+  }
+
+  @Override
+  public Kind kind() {
+    return Kind.NUMBER;
+  }
+
+  @Override
+  public <T> T fold(F0<T> onNull, F<Boolean, T> onBool, F<JsonNumber, T> onNumber, F<String, T> onString, F<JsonArray, T> onArray, F<JsonObject, T> onObject) {
+    return onNumber.f(this);
+  }
+
   public <T> Option<T> onNumber(F<BigDecimal, T> f) {
-    return Option.some(f.f(new BigDecimal(value)));
+    return Option.some(f.f(bigDecimalValue()));
+  }
+
+  @Override
+  public JsonResult<BigDecimal> asNumber() {
+    return JsonResult.success(bigDecimalValue());
+  }
+
+  @Override
+  public JsonResult<Long> asLong() {
+    return JsonResult.success(longValue());
   }
 
   public JsonNumber update(F<BigDecimal,BigDecimal> f){
-    return new JsonNumber(f.f(new BigDecimal(value)).toString());
+    return new JsonNumber(f.f(bigDecimalValue()));
   }
 
   @Override
   public String toString() {
     final StringBuffer sb = new StringBuffer("JsonNumber{");
-    sb.append(value);
+    sb.append(value());
     sb.append('}');
     return sb.toString();
   }
+
+  private static final class LongNumber extends JsonNumber {
+    private final long number;
+
+    LongNumber(long number) {
+      this.number = number;
+    }
+
+    @Override
+    public String value() {
+      return Long.toString(number);
+    }
+
+    @Override
+    BigDecimal toBigDecimal() {
+      return BigDecimal.valueOf(number);
+    }
+
+    @Override
+    boolean sameNumber(JsonNumber other) {
+      return other instanceof LongNumber ? number == ((LongNumber) other).number : super.sameNumber(other);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash(number, 0);
+    }
+
+    @Override
+    public long longValue() {
+      return number;
+    }
+
+    @Override
+    public double doubleValue() {
+      return number;
+    }
+  }
+
+  /**
+   * A decimal with an unscaled value of at most 18 digits, and a scale that makes it written without an exponent
+   */
+  private static final class DecimalNumber extends JsonNumber {
+    private final long unscaled;
+    private final int  scale;
+
+    DecimalNumber(long unscaled, int scale) {
+      this.unscaled = unscaled;
+      this.scale = scale;
+    }
+
+    @Override
+    public String value() {
+      String        digits = Long.toString(Math.abs(unscaled));
+      StringBuilder sb     = new StringBuilder(digits.length() + scale + 3);
+      if (unscaled < 0) {
+        sb.append('-');
+      }
+      int point = digits.length() - scale;
+      if (point <= 0) {
+        sb.append("0.");
+        for (int i = point; i < 0; i++) {
+          sb.append('0');
+        }
+        return sb.append(digits).toString();
+      }
+      return sb.append(digits, 0, point).append('.').append(digits, point, digits.length()).toString();
+    }
+
+    @Override
+    BigDecimal toBigDecimal() {
+      return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    @Override
+    boolean sameNumber(JsonNumber other) {
+      if (other instanceof DecimalNumber) {
+        DecimalNumber decimal = (DecimalNumber) other;
+        return unscaled == decimal.unscaled && scale == decimal.scale;
+      }
+      return super.sameNumber(other);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash(unscaled, scale);
+    }
+
+    @Override
+    public long longValue() {
+      return Numbers.longValue(unscaled, scale);
+    }
+
+    @Override
+    public double doubleValue() {
+      return Numbers.doubleValue(unscaled, scale);
+    }
+  }
+
+  /**
+   * A double, with the text Double.toString() gives, as numbers made from doubles always have had
+   */
+  private static final class DoubleNumber extends JsonNumber {
+    private final double number;
+
+    DoubleNumber(double number) {
+      this.number = number;
+    }
+
+    @Override
+    public String value() {
+      return Double.toString(number);
+    }
+
+    @Override
+    public long longValue() {
+      return Math.abs(number) < 0x1p53 ? (long) number : super.longValue();
+    }
+
+    @Override
+    public double doubleValue() {
+      if (Double.isNaN(number) || Double.isInfinite(number)) {
+        return super.doubleValue();
+      }
+      return number == 0 ? 0.0 : number;
+    }
+  }
 }
@@ -2,54 +2,332 @@ package org.kantega.kson.json;
 
 import fj.Equal;
 import fj.F;
+import fj.F0;
 import fj.Ord;
+import fj.Ordering;
+import fj.P;
 import fj.P2;
 import fj.data.List;
 import fj.data.Option;
 import fj.data.TreeMap;
+import fj.function.TryEffect2;
+import org.kantega.kson.JsonResult;
 
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * A json object. Objects with up to 32 fields keep their names sorted in a flat array, next to an array of the
+ * values, and look names up by a linear scan, or through a small hash index when there are more than 8 fields.
+ * Larger objects are kept in a TreeMap. The TreeMap that onObject() and pairs() give is built the first time it is
+ * asked for.
+ */
 public class JsonObject extends JsonValue {
 
+    static final int MAX_FLAT_SIZE = 32;
+
+    private static final int MIN_INDEXED_SIZE = 8;
+
+    /**
+     * Orders field names the same way as Ord.stringOrd, but without comparing the chars of names that are the
+     * same instance, as names from a FieldNameCache often are.
+     */
+    public static final Ord<String> fieldNameOrd =
+      Ord.ord((one, other) -> one == other ? Ordering.EQ : Ordering.fromInt(one.compareTo(other)));
+
     public static final JsonObject empty =
-      JsonObject(List.nil());
+      new JsonObject(new String[0], new JsonValue[0]);
 
     public static final Equal<JsonObject> eq =
-      Equal.treeMapEqual(Equal.stringEqual, JsonValue.eq()).contramap(obj -> obj.pairs);
+      Equal.anyEqual();
 
-    public final TreeMap<String, JsonValue> pairs;
+    private final    String[]                   names;
+    private final    JsonValue[]                values;
+    private final    byte[]                     index;
+    private volatile TreeMap<String, JsonValue> pairs;
+    private          int                        hash;
 
     public JsonObject(TreeMap<String, JsonValue> pairs) {
+        this.names = null;
+        this.values = null;
+        this.index = null;
         this.pairs = pairs;
     }
 
+    private JsonObject(String[] names, JsonValue[] values) {
+        this.names = names;
+        this.values = values;
+        this.index = names.length > MIN_INDEXED_SIZE ? index(names) : null;
+    }
+
     public static JsonObject JsonObject(List<P2<String, JsonValue>> vals) {
-        return new JsonObject(TreeMap.iterableTreeMap(Ord.stringOrd, vals));
+        int         length = vals.length();
+        String[]    names  = new String[length];
+        JsonValue[] values = new JsonValue[length];
+        int         i      = 0;
+        for (P2<String, JsonValue> val : vals) {
+            names[i] = val._1();
+            values[i++] = val._2();
+        }
+        return copyOf(names, values, 0, length);
+    }
+
+    /**
+     * Creates an object of the fields names[from, to) with the values[from, to). If a name occurs more than once,
+     * the last value wins. The arrays are copied, so they can be reused.
+     */
+    public static JsonObject copyOf(String[] names, JsonValue[] values, int from, int to) {
+        int length = to - from;
+        if (length == 0) {
+            return empty;
+        }
+        if (length > MAX_FLAT_SIZE) {
+            TreeMap<String, JsonValue> pairs = TreeMap.empty(fieldNameOrd);
+            for (int i = from; i < to; i++) {
+                pairs = pairs.set(names[i], values[i]);
+            }
+            return new JsonObject(pairs);
+        }
+        String[]    sortedNames  = new String[length];
+        JsonValue[] sortedValues = new JsonValue[length];
+        int         size         = 0;
+        for (int i = from; i < to; i++) {
+            int j = size;
+            while (j > 0 && compare(sortedNames[j - 1], names[i]) > 0) {
+                j--;
+            }
+            if (j > 0 && compare(sortedNames[j - 1], names[i]) == 0) {
+                sortedValues[j - 1] = values[i];
+            } else {
+                System.arraycopy(sortedNames, j, sortedNames, j + 1, size - j);
+                System.arraycopy(sortedValues, j, sortedValues, j + 1, size - j);
+                sortedNames[j] = names[i];
+                sortedValues[j] = values[i];
+                size++;
+            }
+        }
+        return size == length
+               ? new JsonObject(sortedNames, sortedValues)
+               : new JsonObject(Arrays.copyOf(sortedNames, size), Arrays.copyOf(sortedValues, size));
     }
 
     public JsonObject empty() {
         return empty;
     }
 
+    public int size() {
+        return names != null ? names.length : pairs.size();
+    }
+
+    /**
+     * The fields in a TreeMap, in place of the pairs field that objects used to have. The TreeMap of a flat object is
+     * built the first time it is asked for.
+     *
+     * @deprecated use get(), toList() or forEachField(), which do not build the TreeMap
+     */
+    @Deprecated
+    public TreeMap<String, JsonValue> pairs() {
+        TreeMap<String, JsonValue> map = pairs;
+        if (map == null) {
+            map = TreeMap.empty(fieldNameOrd);
+            for (int i = 0; i < names.length; i++) {
+                map = map.set(names[i], values[i]);
+            }
+            pairs = map;
+        }
+        return map;
+    }
+
+    /**
+     * The fields, ordered by name
+     */
+    public List<P2<String, JsonValue>> toList() {
+        if (names == null) {
+            return pairs.toList();
+        }
+        List<P2<String, JsonValue>> list = List.nil();
+        for (int i = names.length - 1; i >= 0; i--) {
+            list = list.cons(P.p(names[i], values[i]));
+        }
+        return list;
+    }
+
+    /**
+     * Gives each field to the effect, ordered by name, without building a list of them
+     */
+    public <Z extends Exception> void forEachField(TryEffect2<String, JsonValue, Z> effect) throws Z {
+        if (names == null) {
+            for (P2<String, JsonValue> pair : pairs) {
+                effect.f(pair._1(), pair._2());
+            }
+            return;
+        }
+        for (int i = 0; i < names.length; i++) {
+            effect.f(names[i], values[i]);
+        }
+    }
+
+    @Override
+    public Kind kind() {
+        return Kind.OBJECT;
+    }
+
+    @Override
+    public <T> T fold(F0<T> onNull, F<Boolean, T> onBool, F<JsonNumber, T> onNumber, F<String, T> onString, F<JsonArray, T> onArray, F<JsonObject, T> onObject) {
+        return onObject.f(this);
+    }
+
     public <T> Option<T> onObject(F<TreeMap<String, JsonValue>, T> f) {
-        return Option.some(f.f(pairs));
+        return Option.some(f.f(pairs()));
     }
 
     public JsonObject update(F<TreeMap<String, JsonValue>, TreeMap<String, JsonValue>> f) {
-        return new JsonObject(f.f(pairs));
+        return new JsonObject(f.f(pairs()));
     }
 
     public JsonObject withField(String name, JsonValue value) {
-        return new JsonObject(pairs.set(name, value));
+        if (names == null) {
+            return new JsonObject(pairs.set(name, value));
+        }
+        int i = Arrays.binarySearch(names, name);
+        if (i >= 0) {
+            JsonValue[] newValues = values.clone();
+            newValues[i] = value;
+            return new JsonObject(names, newValues);
+        }
+        if (names.length == MAX_FLAT_SIZE) {
+            return new JsonObject(pairs().set(name, value));
+        }
+        int         at        = -i - 1;
+        String[]    newNames  = new String[names.length + 1];
+        JsonValue[] newValues = new JsonValue[names.length + 1];
+        System.arraycopy(names, 0, newNames, 0, at);
+        System.arraycopy(values, 0, newValues, 0, at);
+        newNames[at] = name;
+        newValues[at] = value;
+        System.arraycopy(names, at, newNames, at + 1, names.length - at);
+        System.arraycopy(values, at, newValues, at + 1, names.length - at);
+        return new JsonObject(newNames, newValues);
     }
 
     public Option<JsonValue> get(String fieldName) {
-        return pairs.get(fieldName);
+        if (names == null) {
+            return pairs.get(fieldName);
+        }
+        int i = position(fieldName);
+        return i >= 0 ? Option.some(values[i]) : Option.none();
+    }
+
+    @Override
+    public JsonResult<JsonObject> asObject() {
+        return JsonResult.success(this);
+    }
+
+    @Override
+    public JsonResult<JsonValue> field(String field) {
+        Option<JsonValue> value = get(field);
+        return value.isSome() ? JsonResult.success(value.some()) : JsonResult.failLazy(() -> "Field " + field + " not found");
+    }
+
+    @Override
+    public Option<JsonValue> setField(String name, JsonValue value) {
+        return Option.some(withField(name, value));
+    }
+
+    /**
+     * The position of the name in names, or -1 if it is not there
+     */
+    private int position(String name) {
+        if (index != null) {
+            int mask = index.length - 1;
+            for (int slot = slot(name.hashCode(), mask); index[slot] != 0; slot = (slot + 1) & mask) {
+                int i = index[slot] - 1;
+                if (names[i].equals(name)) {
+                    return i;
+                }
+            }
+        } else {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * An open addressing table of the positions of the names, plus one, with at least twice as many slots as names
+     */
+    private static byte[] index(String[] names) {
+        byte[] index = new byte[Integer.highestOneBit(names.length) << 2];
+        int    mask  = index.length - 1;
+        for (int i = 0; i < names.length; i++) {
+            int slot = slot(names[i].hashCode(), mask);
+            while (index[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            index[slot] = (byte) (i + 1);
+        }
+        return index;
+    }
+
+    private static int slot(int hash, int mask) {
+        return (hash ^ hash >>> 16) & mask;
+    }
+
+    /**
+     * If the objects have the same names, with equal values. Flat objects are compared without building their TreeMaps.
+     */
+    boolean sameFields(JsonObject other) {
+        if (size() != other.size()) {
+            return false;
+        }
+        if (names == null || other.names == null) {
+            Iterator<P2<String, JsonValue>> others = other.pairs().iterator();
+            for (P2<String, JsonValue> pair : pairs()) {
+                P2<String, JsonValue> otherPair = others.next();
+                if (!pair._1().equals(otherPair._1()) || !equal(pair._2(), otherPair._2())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (!names[i].equals(other.names[i]) || !equal(values[i], other.values[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = 1;
+            if (names != null) {
+                for (int i = 0; i < names.length; i++) {
+                    h = 31 * (31 * h + names[i].hashCode()) + values[i].hashCode();
+                }
+            } else {
+                for (P2<String, JsonValue> pair : pairs) {
+                    h = 31 * (31 * h + pair._1().hashCode()) + pair._2().hashCode();
+                }
+            }
+            hash = h;
+        }
+        return h;
+    }
+
+    private static int compare(String one, String other) {
+        return one == other ? 0 : one.compareTo(other);
     }
 
     @Override
     public String toString() {
         final StringBuffer sb = new StringBuffer("JsonObject{");
-        sb.append(pairs);
+        sb.append(pairs());
         sb.append('}');
         return sb.toString();
     }
@@ -1,7 +1,9 @@
 package org.kantega.kson.json;
 
 import fj.F;
+import fj.F0;
 import fj.data.Option;
+import org.kantega.kson.JsonResult;
 
 public class JsonString extends JsonValue{
 
@@ -11,14 +13,34 @@ public class JsonString extends JsonValue{
     this.value = value;
   }
 
+  @Override
+  public Kind kind() {
+    return Kind.STRING;
+  }
+
+  @Override
+  public <T> T fold(F0<T> onNull, F<Boolean, T> onBool, F<JsonNumber, T> onNumber, F<String, T> onString, F<JsonArray, T> onArray, F<JsonObject, T> onObject) {
+    return onString.f(value);
+  }
+
   public <T> Option<T> onString(F<String, T> f) {
     return Option.some(f.f(value));
   }
 
+  @Override
+  public JsonResult<String> asText() {
+    return JsonResult.success(value);
+  }
+
   public JsonString update(F<String,String> f){
     return new JsonString(f.f(value));
   }
 
+  @Override
+  public int hashCode() {
+    return value.hashCode();
+  }
+
   @Override
   public String toString() {
     final StringBuffer sb = new StringBuffer("JsonString{");
@@ -13,20 +13,127 @@ import java.math.BigDecimal;
 
 import static fj.data.Option.none;
 import static org.kantega.kson.JsonResult.fail;
+import static org.kantega.kson.JsonResult.failLazy;
 import static org.kantega.kson.json.JsonObject.*;
 
+/**
+ * A json value. Values are equal when they are of the same kind and have equal contents: numbers are equal when
+ * their BigDecimals are, and objects when they have the same names with equal values. Arrays, objects and numbers
+ * compute their hash code the first time it is asked for, and keep it.
+ */
 public abstract class JsonValue {
 
+    private static final Equal<JsonValue> eq =
+      Equal.anyEqual();
+
     public static Equal<JsonValue> eq() {
-        return Equal.equal(one -> other ->
-          one.onString(str1 -> other.onString(str1::equals).orSome(false))
-            .orElse(one.onBool(bool1 -> other.onBool(bool1::equals).orSome(false)))
-            .orElse(one.onNumber(num1 -> other.onNumber(num1::equals).orSome(false)))
-            .orElse(one.onNull(() -> other.onNull(() -> true).orSome(false)))
-            .orElse(one.onObject(obj1 -> other.onObject(Equal.treeMapEqual(Equal.stringEqual, eq()).eq(obj1)).orSome(false)))
-            .orElse(one.onArray(arr -> other.onArray(Equal.listEqual(eq()).eq(arr)).orSome(false)))
-            .orSome(false)
-        );
+        return eq;
+    }
+
+    /**
+     * The kinds of json values. Values of subclasses of JsonValue outside this library are of the kind OTHER,
+     * and are seen by their onX methods.
+     */
+    public enum Kind {
+        NULL, BOOL, NUMBER, STRING, ARRAY, OBJECT, OTHER
+    }
+
+    /**
+     * The kind of the value. Values of the kinds NULL, BOOL, NUMBER, STRING, ARRAY and OBJECT are instances of
+     * JsonNull, JsonBool, JsonNumber, JsonString, JsonArray and JsonObject.
+     */
+    public Kind kind() {
+        return Kind.OTHER;
+    }
+
+    /**
+     * Gives the value to the function for its kind, in one call
+     *
+     * @throws IllegalStateException if the value is of a subclass outside this library that is none of the kinds
+     */
+    public <T> T fold(
+      F0<T> onNull,
+      F<Boolean, T> onBool,
+      F<JsonNumber, T> onNumber,
+      F<String, T> onString,
+      F<JsonArray, T> onArray,
+      F<JsonObject, T> onObject) {
+        JsonValue known = known(this);
+        if (known == null) {
+            throw new IllegalStateException(this + " is none of the json kinds");
+        }
+        return known.fold(onNull, onBool, onNumber, onString, onArray, onObject);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof JsonValue && equal(this, (JsonValue) other);
+    }
+
+    /**
+     * The hash code of the value as one of the json classes, for values of subclasses outside this library
+     */
+    @Override
+    public int hashCode() {
+        JsonValue known = known(this);
+        return known != null ? known.hashCode() : System.identityHashCode(this);
+    }
+
+    static boolean equal(JsonValue one, JsonValue other) {
+        if (one == other) {
+            return true;
+        }
+        if (one.kind() == Kind.OTHER || other.kind() == Kind.OTHER) {
+            JsonValue knownOne   = known(one);
+            JsonValue knownOther = known(other);
+            return knownOne != null && knownOther != null && equal(knownOne, knownOther);
+        }
+        if (one.kind() != other.kind()) {
+            return false;
+        }
+        switch (one.kind()) {
+            case NULL:
+                return true;
+            case BOOL:
+                return ((JsonBool) one).value == ((JsonBool) other).value;
+            case NUMBER:
+                return ((JsonNumber) one).sameNumber((JsonNumber) other);
+            case STRING:
+                return ((JsonString) one).value.equals(((JsonString) other).value);
+            case ARRAY:
+                if (one.hashCode() != other.hashCode()) {
+                    return false;
+                }
+                JsonArray oneArray   = (JsonArray) one;
+                JsonArray otherArray = (JsonArray) other;
+                if (oneArray.length() != otherArray.length()) {
+                    return false;
+                }
+                for (int i = 0; i < oneArray.length(); i++) {
+                    if (!equal(oneArray.get(i), otherArray.get(i))) {
+                        return false;
+                    }
+                }
+                return true;
+            default:
+                return one.hashCode() == other.hashCode() && ((JsonObject) one).sameFields((JsonObject) other);
+        }
+    }
+
+    /**
+     * A value of a subclass outside this library as one of the json classes, or null if it is none of the kinds
+     */
+    private static JsonValue known(JsonValue json) {
+        if (json.kind() != Kind.OTHER) {
+            return json;
+        }
+        return json.onNull(JsonValues::jNull)
+          .orElse(json.onBool(JsonValues::jBool))
+          .orElse(json.onNumber(JsonValues::jNum))
+          .orElse(json.onString(JsonValues::jString))
+          .orElse(json.onArray(JsonValues::jArray))
+          .orElse(json.onObject(JsonValues::jObj))
+          .toNull();
     }
 
     public Option<String> asTextO() {
@@ -34,7 +141,7 @@ public abstract class JsonValue {
     }
 
     public JsonResult<String> asText() {
-        return onString(JsonResult::success).orSome(fail(toString() + " is not a string"));
+        return onString(JsonResult::success).orSome(failLazy(() -> toString() + " is not a string"));
     }
 
     public Option<BigDecimal> asNumberO() {
@@ -42,11 +149,11 @@ public abstract class JsonValue {
     }
 
     public JsonResult<BigDecimal> asNumber() {
-        return onNumber(JsonResult::success).orSome(fail(toString() + "is not a number"));
+        return onNumber(JsonResult::success).orSome(failLazy(() -> toString() + "is not a number"));
     }
 
     public JsonResult<Long> asLong() {
-        return onNumber(JsonResult::success).map(n->n.asLong()).orSome(fail(toString() + "is not a long"));
+        return onNumber(n -> JsonResult.success(n.longValue())).orSome(failLazy(() -> toString() + "is not a long"));
     }
 
     public Option<Long> asLongO() {
@@ -58,24 +165,31 @@ public abstract class JsonValue {
     }
 
     public JsonResult<Boolean> asBool() {
-        return onBool(JsonResult::success).orSome(fail(toString() + "is not a bool"));
+        return onBool(JsonResult::success).orSome(failLazy(() -> toString() + "is not a bool"));
     }
 
     public JsonResult.ArrayResult<JsonValue> asArray() {
         JsonResult<List<JsonValue>> v =
-          onArray(JsonResult::success).orSome(JsonResult.fail(toString() + "is not an array"));
-        return new JsonResult.ArrayResult<>(v.toValidation());
+          onArray(JsonResult::success).orSome(JsonResult.failLazy(() -> toString() + "is not an array"));
+        return JsonResult.ArrayResult.fromResult(v);
+    }
+
+    /**
+     * The value at index i, if this is an array
+     */
+    public JsonResult<JsonValue> index(int i) {
+        return onArray(list -> JsonResult.tried(() -> list.toArray().get(i))).orSome(() -> fail("Not an array"));
     }
 
     public JsonResult<JsonObject> asObject(){
-        return onObject(map->JsonResult.success(JsonObject(map.toList()))).orSome(fail(toString() + "is not an object"));
+        return onObject(map->JsonResult.success(JsonObject(map.toList()))).orSome(failLazy(() -> toString() + "is not an object"));
     }
 
     public JsonResult<JsonValue> field(String field) {
         return onObject(
           m -> m.get(field)
             .option(
-              JsonResult.<JsonValue>fail("Field " + field + " not found"),
+              JsonResult.<JsonValue>failLazy(() -> "Field " + field + " not found"),
               JsonResult::success)
         ).orSome(JsonResult.fail("Trying to read field " + field + ", but this is not abject"));
     }
@@ -4,6 +4,7 @@ import fj.P;
 import fj.P2;
 import fj.data.List;
 import fj.data.TreeMap;
+import org.kantega.kson.util.Numbers;
 
 import java.math.BigDecimal;
 
@@ -16,7 +17,7 @@ public class JsonValues {
     }
 
     public static JsonValue jArray(JsonValue... vals) {
-        return jArray(List.arrayList(vals));
+        return JsonArray.copyOf(vals, 0, vals.length);
     }
 
     public static JsonValue jObj(List<P2<String, JsonValue>> fields) {
@@ -72,15 +73,30 @@ public class JsonValues {
     }
 
     public static JsonValue jNum(BigDecimal n) {
-        return new JsonNumber(n.toString());
+        return new JsonNumber(n);
+    }
+
+    /**
+     * Creates a number from a json number literal. The literal is kept as it is if it is the same
+     * as the text of its BigDecimal, otherwise it is converted to one.
+     * Literals of up to 18 digits that are kept are kept as a long, or as an unscaled long and a scale.
+     *
+     * @param literal the json number
+     * @return the number
+     */
+    public static JsonValue jNum(String literal) {
+        if (Numbers.isCanonical(literal)) {
+            return JsonNumber.ofCanonical(literal);
+        }
+        return jNum(new BigDecimal(literal));
     }
 
     public static JsonValue jNum(long n) {
-        return new JsonNumber(String.valueOf(n));
+        return JsonNumber.of(n);
     }
 
     public static JsonValue jNum(double n) {
-        return new JsonNumber(String.valueOf(n));
+        return JsonNumber.of(n);
     }
 
 
@@ -3,6 +3,7 @@ package org.kantega.kson.lens;
 import fj.F;
 import fj.F2;
 import fj.data.List;
+import fj.data.Option;
 import fj.data.TreeMap;
 import org.kantega.kson.JsonResult;
 import org.kantega.kson.json.JsonValue;
@@ -16,7 +17,8 @@ public class JsonLenses {
     public static JsonValueLens selfLens() {
         return new JsonValueLens(
           JsonResult::success,
-          (a, origin) -> JsonResult.success(a)
+          (a, origin) -> JsonResult.success(a),
+          Option.some(List.nil())
         );
     }
 
@@ -51,10 +53,11 @@ public class JsonLenses {
     }
 
     public static JsonValueLens field(String fieldName) {
-        return objLens(
-          map -> map.get(fieldName).option(JsonResult.fail("No field with name " + fieldName + " in object"), JsonResult::success),
+        JsonValueLens lens = objLens(
+          map -> map.get(fieldName).option(JsonResult.failLazy(() -> "No field with name " + fieldName + " in object"), JsonResult::success),
           (a, map) -> map.set(fieldName, a)
         );
+        return new JsonValueLens(lens.get(), lens::set, Option.some(List.single(fieldName)));
     }
 
 
@@ -15,17 +15,34 @@ import static org.kantega.kson.JsonResult.success;
 
 public class JsonValueLens extends JsonLens<JsonValue, JsonValue> {
 
+  private final Option<List<String>> path;
 
   public JsonValueLens(
       F<JsonValue, JsonResult<JsonValue>> get,
       F2<JsonValue, JsonValue, JsonResult<JsonValue>> set) {
+    this(get, set, Option.none());
+  }
+
+  JsonValueLens(
+      F<JsonValue, JsonResult<JsonValue>> get,
+      F2<JsonValue, JsonValue, JsonResult<JsonValue>> set,
+      Option<List<String>> path) {
     super(get, set);
+    this.path = path;
+  }
+
+  /**
+   * The field names this lens selects, if it is made of field lenses only
+   */
+  public Option<List<String>> path() {
+    return path;
   }
 
   public <B> JsonValueLens then(JsonValueLens other) {
     return new JsonValueLens(
         s -> get(s).bind(other::get),
-        (b, s) -> mod(s, a -> other.set(a, b))
+        (b, s) -> mod(s, a -> other.set(a, b)),
+        path.bind(first -> other.path.map(first::append))
     );
   }
 
@@ -0,0 +1,162 @@
+package org.kantega.kson.parser;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Scans utf-8 encoded bytes in place from a ByteBuffer, typically a direct buffer or a memory mapped file.
+ * The input can be split into several windows, which are scanned one after the other. This lets us
+ * map files larger than the 2GB a single MappedByteBuffer can hold.
+ * Only the contents of strings are copied out of the buffer, to be decoded. Offsets in ParseFailures are byte offsets.
+ */
+class ByteBufferScanner extends JsonScanner {
+
+    static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+    private static final int DEFAULT_CAPTURE_SIZE = 1024;
+
+    interface Windows {
+        /**
+         * Returns the next window of the input, or null if there are no more.
+         */
+        ByteBuffer next() throws IOException;
+    }
+
+    private final Windows    windows;
+    private       ByteBuffer buffer;
+    private       ByteBuffer view;
+    private       long       bufferOffset;
+    private       int        index;
+    private       int        fill;
+    private       int        captureStart;
+    private       byte[]     captureBytes;
+    private       int        captureLength;
+
+    /**
+     * Scans the remaining bytes of the buffer, without moving its position.
+     */
+    ByteBufferScanner(ByteBuffer buffer) {
+        this(buffer, () -> null);
+    }
+
+    private ByteBufferScanner(ByteBuffer first, Windows windows) {
+        this.windows = windows;
+        this.buffer = first;
+        this.view = first.duplicate();
+        this.index = first.position();
+        this.fill = first.limit();
+        this.bufferOffset = -first.position();
+        captureStart = -1;
+    }
+
+    /**
+     * Maps the file in windows of the given size. The channel must be kept open until the scanning is done.
+     */
+    static ByteBufferScanner mapped(FileChannel channel, int windowSize) throws IOException {
+        long size = channel.size();
+        long[] mapped = {Math.min(size, windowSize)};
+        Windows windows = () -> {
+            if (mapped[0] >= size) {
+                return null;
+            }
+            long       position = mapped[0];
+            ByteBuffer window   = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, windowSize));
+            mapped[0] = position + window.limit();
+            return window;
+        };
+        return new ByteBufferScanner(channel.map(FileChannel.MapMode.READ_ONLY, 0, mapped[0]), windows);
+    }
+
+    @Override
+    void read() throws IOException {
+        if (index == fill) {
+            ByteBuffer next = windows.next();
+            if (next == null) {
+                current = -1;
+                return;
+            }
+            if (captureStart != -1) {
+                appendCaptureBytes(captureStart, fill);
+                captureStart = 0;
+            }
+            bufferOffset += fill;
+            buffer = next;
+            view = next.duplicate();
+            fill = next.limit();
+            index = 0;
+        }
+        if (current == '\n') {
+            line++;
+            lineOffset = bufferOffset + index;
+        }
+        current = buffer.get(index++) & 0xff;
+    }
+
+    @Override
+    void startCapture() {
+        if (captureBuffer == null) {
+            captureBuffer = new StringBuilder();
+        }
+        captureStart = index - 1;
+    }
+
+    @Override
+    void pauseCapture() {
+        captureBuffer.append(decodeCaptured());
+        captureStart = -1;
+    }
+
+    @Override
+    String endCapture() {
+        String captured = decodeCaptured();
+        if (captureBuffer.length() > 0) {
+            captureBuffer.append(captured);
+            captured = captureBuffer.toString();
+            captureBuffer.setLength(0);
+        }
+        captureStart = -1;
+        return captured;
+    }
+
+    @Override
+    String endCaptureName(int hash) {
+        if (captureLength > 0) {
+            return endCapture();
+        }
+        String name = names.name(buffer, captureStart, index - 1, hash);
+        captureStart = -1;
+        return name;
+    }
+
+    @Override
+    long position() {
+        return bufferOffset + index;
+    }
+
+    private String decodeCaptured() {
+        int end = current == -1 ? index : index - 1;
+        appendCaptureBytes(captureStart, end);
+        String captured = new String(captureBytes, 0, captureLength, UTF_8);
+        captureLength = 0;
+        return captured;
+    }
+
+    private void appendCaptureBytes(int start, int end) {
+        int length = end - start;
+        if (captureBytes == null) {
+            captureBytes = new byte[Math.max(DEFAULT_CAPTURE_SIZE, length)];
+        } else if (captureLength + length > captureBytes.length) {
+            byte[] grown = new byte[Math.max(captureBytes.length * 2, captureLength + length)];
+            System.arraycopy(captureBytes, 0, grown, 0, captureLength);
+            captureBytes = grown;
+        }
+        ((Buffer) view).limit(end);
+        ((Buffer) view).position(start);
+        view.get(captureBytes, captureLength, length);
+        captureLength += length;
+    }
+}
@@ -0,0 +1,79 @@
+package org.kantega.kson.parser;
+
+/**
+ * The runs of bytes that the hot loops of the utf-8 scanners and JsonTape skip over: the plain chars of a string,
+ * whitespace and digits. Each scan gives the index of the first byte in [from, to) that is not part of the run, or
+ * to if they all are.
+ * <p>
+ * This is the scalar version, for any jvm. The multi-release jar holds a VectorByteScans for Java 17 and later,
+ * that scans many bytes at a time with the incubating Vector API. It is used when the jdk.incubator.vector module
+ * is added to the jvm, with --add-modules jdk.incubator.vector.
+ */
+class ByteScans {
+
+    static final ByteScans scans = load();
+
+    ByteScans() {
+    }
+
+    /**
+     * Skips bytes that can be in a string as they are, that is anything but a quote, a backslash or a control char.
+     * The bytes of multibyte utf-8 sequences are all plain.
+     */
+    int stringEnd(byte[] bytes, int from, int to) {
+        int i = from;
+        while (i < to && isPlain(bytes[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Skips spaces, tabs and carriage returns, that is whitespace that does not start a new line
+     */
+    int blanksEnd(byte[] bytes, int from, int to) {
+        int i = from;
+        while (i < to && (bytes[i] == ' ' || bytes[i] == '\t' || bytes[i] == '\r')) {
+            i++;
+        }
+        return i;
+    }
+
+    int whiteSpaceEnd(byte[] bytes, int from, int to) {
+        int i = from;
+        while (i < to && (bytes[i] == ' ' || bytes[i] == '\t' || bytes[i] == '\n' || bytes[i] == '\r')) {
+            i++;
+        }
+        return i;
+    }
+
+    int digitsEnd(byte[] bytes, int from, int to) {
+        int i = from;
+        while (i < to && bytes[i] >= '0' && bytes[i] <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * The name of the implementation, for benchmarks
+     */
+    String name() {
+        return "scalar";
+    }
+
+    static boolean isPlain(byte b) {
+        return b != '"' && b != '\\' && (b & 0xff) >= 0x20;
+    }
+
+    /**
+     * The vector scans if they are in the jar and the jvm can link them, otherwise the scalar ones
+     */
+    private static ByteScans load() {
+        try {
+            return (ByteScans) Class.forName("org.kantega.kson.parser.VectorByteScans").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ByteScans();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.kantega.kson.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Scans chars from a Reader, or straight from a String.
+ */
+class CharScanner extends JsonScanner {
+
+    private static final int MIN_BUFFER_SIZE     = 10;
+    private static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    private       Reader reader;
+    private       String string;
+    private       int    stringIndex;
+    private final char[] buffer;
+    private       long   bufferOffset;
+    private       int    index;
+    private       int    fill;
+    private       int    captureStart;
+
+  /*
+   * |                      bufferOffset
+   *                        v
+   * [a|b|c|d|e|f|g|h|i|j|k|l|m|n|o|p|q|r|s|t]        < input
+   *                       [l|m|n|o|p|q|r|s|t|?|?]    < buffer
+   *                          ^               ^
+   *                       |  index           fill
+   */
+
+    CharScanner(String string) {
+        this(Math.max(MIN_BUFFER_SIZE, Math.min(DEFAULT_BUFFER_SIZE, string.length())));
+        this.string = string;
+    }
+
+    CharScanner(Reader reader) {
+        this(DEFAULT_BUFFER_SIZE);
+        this.reader = reader;
+    }
+
+    /**
+     * A scanner without input, that is given one with reset()
+     */
+    CharScanner() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    private CharScanner(int buffersize) {
+        buffer = new char[buffersize];
+        captureStart = -1;
+    }
+
+    /**
+     * Starts scanning the string, reusing the buffers of this scanner
+     */
+    CharScanner reset(String string) {
+        resetState();
+        this.string = string;
+        this.stringIndex = 0;
+        bufferOffset = 0;
+        index = 0;
+        fill = 0;
+        captureStart = -1;
+        return this;
+    }
+
+    /**
+     * Lets go of the input, so that a scanner that is kept for reuse does not hold on to it
+     */
+    void release() {
+        string = null;
+        names = null;
+    }
+
+    @Override
+    void read() throws IOException {
+        if (index == fill) {
+            if (captureStart != -1) {
+                captureBuffer.append(buffer, captureStart, fill - captureStart);
+                captureStart = 0;
+            }
+            bufferOffset += fill;
+            fill = reader != null ? reader.read(buffer, 0, buffer.length) : readString();
+            index = 0;
+            if (fill == -1) {
+                current = -1;
+                return;
+            }
+        }
+        if (current == '\n') {
+            line++;
+            lineOffset = bufferOffset + index;
+        }
+        current = buffer[index++];
+    }
+
+    private int readString() {
+        int length = Math.min(buffer.length, string.length() - stringIndex);
+        if (length == 0) {
+            return -1;
+        }
+        string.getChars(stringIndex, stringIndex + length, buffer, 0);
+        stringIndex += length;
+        return length;
+    }
+
+    @Override
+    void startCapture() {
+        if (captureBuffer == null) {
+            captureBuffer = new StringBuilder();
+        }
+        captureStart = index - 1;
+    }
+
+    @Override
+    void pauseCapture() {
+        int end = current == -1 ? index : index - 1;
+        captureBuffer.append(buffer, captureStart, end - captureStart);
+        captureStart = -1;
+    }
+
+    @Override
+    String endCapture() {
+        int    end = current == -1 ? index : index - 1;
+        String captured;
+        if (captureBuffer.length() > 0) {
+            captureBuffer.append(buffer, captureStart, end - captureStart);
+            captured = captureBuffer.toString();
+            captureBuffer.setLength(0);
+        } else {
+            captured = new String(buffer, captureStart, end - captureStart);
+        }
+        captureStart = -1;
+        return captured;
+    }
+
+    @Override
+    String endCaptureName(int hash) {
+        if (captureBuffer.length() > 0) {
+            return endCapture();
+        }
+        String name = names.name(buffer, captureStart, index - 1, hash);
+        captureStart = -1;
+        return name;
+    }
+
+    @Override
+    long position() {
+        return bufferOffset + index;
+    }
+}
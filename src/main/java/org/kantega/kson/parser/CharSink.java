@@ -0,0 +1,89 @@
+package org.kantega.kson.parser;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * The buffer JsonWriter writes chars into. Without an Appendable, the buffer grows to hold the whole output. With one,
+ * the buffer is handed to it whenever it is full, so output of any size is written through one buffer.
+ */
+final class CharSink extends JsonSink {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Appendable out;
+    private       char[]     buffer;
+    private       int        count;
+
+    CharSink(Appendable out) {
+        this.out = out;
+        this.buffer = new char[out == null ? 256 : BUFFER_SIZE];
+    }
+
+    @Override
+    void write(char c) throws IOException {
+        if (count == buffer.length) {
+            makeRoom(1);
+        }
+        buffer[count++] = c;
+    }
+
+    @Override
+    void write(Literal literal) throws IOException {
+        char[] chars = literal.chars;
+        int    from  = 0;
+        while (from < chars.length) {
+            if (count + chars.length - from > buffer.length) {
+                makeRoom(chars.length - from);
+            }
+            // a literal longer than the buffer of a streaming sink is copied a buffer at a time
+            int length = Math.min(chars.length - from, buffer.length - count);
+            System.arraycopy(chars, from, buffer, count, length);
+            count += length;
+            from += length;
+        }
+    }
+
+    @Override
+    void write(String string, int from, int to) throws IOException {
+        while (from < to) {
+            if (count == buffer.length) {
+                makeRoom(to - from);
+            }
+            int length = Math.min(to - from, buffer.length - count);
+            string.getChars(from, from + length, buffer, count);
+            count += length;
+            from += length;
+        }
+    }
+
+    @Override
+    void flush() throws IOException {
+        if (count == 0 || out == null) {
+            return;
+        }
+        if (out instanceof Writer) {
+            ((Writer) out).write(buffer, 0, count);
+        } else if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(buffer, 0, count);
+        } else {
+            out.append(CharBuffer.wrap(buffer, 0, count));
+        }
+        count = 0;
+    }
+
+    private void makeRoom(int length) throws IOException {
+        if (out == null) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + length));
+        } else {
+            flush();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, count);
+    }
+}
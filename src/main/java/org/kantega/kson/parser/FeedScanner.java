@@ -0,0 +1,174 @@
+package org.kantega.kson.parser;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Scans utf-8 encoded bytes that are fed to it in chunks. Only the bytes from the start of the token being read
+ * are kept. If a token runs past the bytes fed so far, read() throws NEED_INPUT, and the token is read again from
+ * the mark when more bytes have arrived. Offsets in ParseFailures are byte offsets from the start of the input.
+ */
+class FeedScanner extends JsonScanner {
+
+    static final NeedInput NEED_INPUT = new NeedInput();
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private byte[]  buffer;
+    private long    bufferOffset;
+    private int     index;
+    private int     fill;
+    private int     captureStart;
+    private boolean ended;
+
+    private int markIndex;
+    private int markCurrent;
+    private int markLine;
+    private long markLineOffset;
+
+    FeedScanner() {
+        this.buffer = new byte[DEFAULT_BUFFER_SIZE];
+        captureStart = -1;
+    }
+
+    /**
+     * Appends the remaining bytes of the chunk, moving its position to the limit. The bytes are copied,
+     * so the chunk can be reused.
+     */
+    void feed(ByteBuffer chunk) {
+        int length = chunk.remaining();
+        makeRoom(length);
+        chunk.get(buffer, fill, length);
+        fill += length;
+    }
+
+    void feed(byte[] bytes, int offset, int length) {
+        makeRoom(length);
+        System.arraycopy(bytes, offset, buffer, fill, length);
+        fill += length;
+    }
+
+    /**
+     * Marks the end of the input, from then on read() reaches the end of the text instead of asking for more.
+     */
+    void end() {
+        ended = true;
+    }
+
+    boolean isEnded() {
+        return ended;
+    }
+
+    /**
+     * The number of bytes fed since the mark
+     */
+    int pending() {
+        return fill - markIndex;
+    }
+
+    void mark() {
+        markIndex = index;
+        markCurrent = current;
+        markLine = line;
+        markLineOffset = lineOffset;
+    }
+
+    void rewind() {
+        index = markIndex;
+        current = markCurrent;
+        line = markLine;
+        lineOffset = markLineOffset;
+        captureStart = -1;
+        if (captureBuffer != null) {
+            captureBuffer.setLength(0);
+        }
+    }
+
+    /**
+     * Drops the bytes before the mark, keeping the one that current was read from, and grows the buffer if the
+     * rest does not leave room for length more bytes.
+     */
+    private void makeRoom(int length) {
+        if (fill + length <= buffer.length) {
+            return;
+        }
+        int drop = Math.max(markIndex - 1, 0);
+        int kept = fill - drop;
+        byte[] target = kept + length <= buffer.length ? buffer : new byte[Math.max(buffer.length * 2, kept + length)];
+        System.arraycopy(buffer, drop, target, 0, kept);
+        buffer = target;
+        bufferOffset += drop;
+        index -= drop;
+        fill -= drop;
+        markIndex -= drop;
+    }
+
+    @Override
+    void read() {
+        if (index == fill) {
+            if (!ended) {
+                throw NEED_INPUT;
+            }
+            current = -1;
+            return;
+        }
+        if (current == '\n') {
+            line++;
+            lineOffset = bufferOffset + index;
+        }
+        current = buffer[index++] & 0xff;
+    }
+
+    @Override
+    void startCapture() {
+        if (captureBuffer == null) {
+            captureBuffer = new StringBuilder();
+        }
+        captureStart = index - 1;
+    }
+
+    @Override
+    void pauseCapture() {
+        captureBuffer.append(decodeCaptured());
+        captureStart = -1;
+    }
+
+    @Override
+    String endCapture() {
+        String captured = decodeCaptured();
+        if (captureBuffer.length() > 0) {
+            captureBuffer.append(captured);
+            captured = captureBuffer.toString();
+            captureBuffer.setLength(0);
+        }
+        captureStart = -1;
+        return captured;
+    }
+
+    @Override
+    String endCaptureName(int hash) {
+        String name = names.name(buffer, captureStart, index - 1, hash);
+        captureStart = -1;
+        return name;
+    }
+
+    @Override
+    long position() {
+        return bufferOffset + index;
+    }
+
+    private String decodeCaptured() {
+        int end = current == -1 ? index : index - 1;
+        return new String(buffer, captureStart, end - captureStart, UTF_8);
+    }
+
+    /**
+     * Thrown when a token runs past the bytes fed so far. There is only one instance, without a stack trace.
+     */
+    static final class NeedInput extends RuntimeException {
+        private NeedInput() {
+            super("More input needed", null, false, false);
+        }
+    }
+}
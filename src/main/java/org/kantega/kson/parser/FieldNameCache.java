@@ -0,0 +1,133 @@
+package org.kantega.kson.parser;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * A bounded cache of field names, that lets the parser hand out the same String instance for every occurrence
+ * of a name, instead of allocating a new one each time. The names are looked up straight from the input buffer
+ * of the parser, so a hit allocates nothing.
+ * <p>
+ * The cache has a fixed number of slots, and a name replaces whatever name its slot held before. Only ascii names
+ * without escapes, that are no longer than 64 chars, are cached. A cache can be shared between threads, races
+ * only lead to misses.
+ * <pre>
+ * FieldNameCache names = FieldNameCache.fieldNameCache(4096);
+ * JsonResult&lt;JsonValue&gt; json = JsonParser.parse(bytes, names);
+ * </pre>
+ */
+public final class FieldNameCache {
+
+    static final int MAX_NAME_LENGTH = 64;
+
+    private static final int DEFAULT_SIZE = 1024;
+
+    private final String[] names;
+    private final int      mask;
+
+    private FieldNameCache(int size) {
+        this.names = new String[size];
+        this.mask = size - 1;
+    }
+
+    public static FieldNameCache fieldNameCache() {
+        return fieldNameCache(DEFAULT_SIZE);
+    }
+
+    /**
+     * Creates a cache with at least the given number of slots, rounded up to a power of two.
+     */
+    public static FieldNameCache fieldNameCache(int size) {
+        if (size < 1 || size > 1 << 30) {
+            throw new IllegalArgumentException("The size of the cache must be between 1 and 2^30, was " + size);
+        }
+        return new FieldNameCache(size == 1 ? 1 : Integer.highestOneBit(size - 1) << 1);
+    }
+
+    /**
+     * Looks up the name in chars[from, to). The hash must be the String.hashCode() of the name.
+     */
+    String name(char[] chars, int from, int to, int hash) {
+        int    slot   = slot(hash);
+        String cached = names[slot];
+        if (cached != null && cached.hashCode() == hash && matches(cached, chars, from, to)) {
+            return cached;
+        }
+        String name = new String(chars, from, to - from);
+        names[slot] = name;
+        return name;
+    }
+
+    /**
+     * Looks up the ascii name in bytes[from, to). The hash must be the String.hashCode() of the name.
+     */
+    String name(byte[] bytes, int from, int to, int hash) {
+        int    slot   = slot(hash);
+        String cached = names[slot];
+        if (cached != null && cached.hashCode() == hash && matches(cached, bytes, from, to)) {
+            return cached;
+        }
+        String name = new String(bytes, from, to - from, ISO_8859_1);
+        names[slot] = name;
+        return name;
+    }
+
+    /**
+     * Looks up the ascii name in the bytes between from and to of the buffer, using absolute gets.
+     */
+    String name(ByteBuffer bytes, int from, int to, int hash) {
+        int    slot   = slot(hash);
+        String cached = names[slot];
+        if (cached != null && cached.hashCode() == hash && matches(cached, bytes, from, to)) {
+            return cached;
+        }
+        char[] chars = new char[to - from];
+        for (int i = from; i < to; i++) {
+            chars[i - from] = (char) bytes.get(i);
+        }
+        String name = new String(chars);
+        names[slot] = name;
+        return name;
+    }
+
+    private int slot(int hash) {
+        return (hash ^ hash >>> 16) & mask;
+    }
+
+    private static boolean matches(String name, char[] chars, int from, int to) {
+        if (name.length() != to - from) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (name.charAt(i - from) != chars[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(String name, byte[] bytes, int from, int to) {
+        if (name.length() != to - from) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (name.charAt(i - from) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(String name, ByteBuffer bytes, int from, int to) {
+        if (name.length() != to - from) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (name.charAt(i - from) != bytes.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,209 @@
+package org.kantega.kson.parser;
+
+import org.kantega.kson.JsonResult;
+import org.kantega.kson.json.JsonArray;
+import org.kantega.kson.json.JsonObject;
+import org.kantega.kson.json.JsonValue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.kantega.kson.json.JsonValues.*;
+
+/**
+ * A parser that is pushed utf-8 encoded json in chunks, as they arrive, and never blocks. Every chunk is parsed as
+ * far as it goes, and the state is kept until the next one, so only the bytes of a token that is split between
+ * chunks are held back. This lets a body be parsed on an event loop thread, while it is being received.
+ * <p>
+ * The result is the same as JsonParser.parse() gives for all the bytes at once, failures included. A syntax error
+ * is detected as soon as the bytes that show it have been fed, except inside long tokens. A JsonFeedParser parses
+ * one document, and is not thread safe.
+ * <pre>
+ * JsonFeedParser parser = JsonFeedParser.feedParser();
+ * parser.feed(chunk);
+ * ...
+ * JsonResult&lt;JsonValue&gt; json = parser.endOfInput();
+ * </pre>
+ */
+public final class JsonFeedParser {
+
+    private static final int RESCAN_LIMIT = 4096;
+
+    private final FeedScanner scanner;
+    private final JsonReader  reader;
+    private       int         wanted;
+    private       int[]       starts;
+    private       int         depth;
+    private       String[]    names;
+    private       JsonValue[] elements;
+    private       int         top;
+    private       JsonValue   value;
+
+    private JsonResult<JsonValue> result;
+
+    private JsonFeedParser(FieldNameCache names) {
+        this.scanner = new FeedScanner();
+        this.scanner.withNames(names);
+        this.reader = new JsonReader(scanner);
+        this.starts = new int[16];
+        this.names = new String[16];
+        this.elements = new JsonValue[16];
+    }
+
+    public static JsonFeedParser feedParser() {
+        return new JsonFeedParser(null);
+    }
+
+    /**
+     * A parser that takes the field names from the cache
+     */
+    public static JsonFeedParser feedParser(FieldNameCache names) {
+        return new JsonFeedParser(names);
+    }
+
+    /**
+     * Parses the remaining bytes of the chunk, moving its position to the limit. The bytes are copied, so the
+     * chunk can be reused as soon as this returns.
+     *
+     * @throws IllegalStateException if endOfInput() has been called
+     */
+    public JsonFeedParser feed(ByteBuffer chunk) {
+        checkNotEnded();
+        if (result == null) {
+            scanner.feed(chunk);
+            advance();
+        } else {
+            chunk.position(chunk.limit());
+        }
+        return this;
+    }
+
+    public JsonFeedParser feed(byte[] bytes) {
+        return feed(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Parses the bytes in the given region of the array. The bytes are copied, so the array can be reused.
+     *
+     * @throws IllegalStateException if endOfInput() has been called
+     */
+    public JsonFeedParser feed(byte[] bytes, int offset, int length) {
+        checkNotEnded();
+        if (result == null) {
+            scanner.feed(bytes, offset, length);
+            advance();
+        }
+        return this;
+    }
+
+    /**
+     * True if the bytes fed so far are not the start of valid json. The rest of the input can then be discarded.
+     */
+    public boolean hasFailed() {
+        return result != null && !scanner.isEnded();
+    }
+
+    /**
+     * Tells the parser that all the input has been fed, and gives the parsed value, or a failure. Can be called
+     * more than once.
+     */
+    public JsonResult<JsonValue> endOfInput() {
+        if (!scanner.isEnded()) {
+            scanner.end();
+            if (result == null) {
+                advance();
+            }
+        }
+        return result;
+    }
+
+    private void checkNotEnded() {
+        if (scanner.isEnded()) {
+            throw new IllegalStateException("The end of the input has already been reached");
+        }
+    }
+
+    /**
+     * Reads the tokens that are complete in the bytes fed so far. After a token has run past them, it is tried
+     * again when more bytes arrive, but once more than 4k bytes are held back, not until they have doubled. A long
+     * token that arrives in many small chunks is then scanned a bounded number of times.
+     */
+    private void advance() {
+        try {
+            while (scanner.isEnded() || scanner.pending() >= wanted) {
+                JsonToken token = reader.nextToken(scanner);
+                if (token == null) {
+                    wanted = scanner.pending() < RESCAN_LIMIT ? scanner.pending() + 1 : scanner.pending() * 2;
+                    return;
+                }
+                wanted = 0;
+                if (token == JsonToken.END_DOCUMENT) {
+                    result = JsonResult.success(value);
+                    return;
+                }
+                read(token);
+            }
+        } catch (IOException ioe) {
+            result = JsonParser.ioFailure(ioe);
+        } catch (ParseFailure f) {
+            result = JsonParser.parseFailure(f);
+        }
+    }
+
+    private void read(JsonToken token) {
+        switch (token) {
+            case START_ARRAY:
+            case START_OBJECT:
+                if (depth == starts.length) {
+                    starts = Arrays.copyOf(starts, depth * 2);
+                }
+                starts[depth++] = top;
+                return;
+            case END_ARRAY:
+                int arrayStart = starts[--depth];
+                JsonArray array = JsonArray.copyOf(elements, arrayStart, top);
+                top = arrayStart;
+                add(array);
+                return;
+            case END_OBJECT:
+                int objectStart = starts[--depth];
+                JsonObject object = JsonObject.copyOf(names, elements, objectStart, top);
+                top = objectStart;
+                add(object);
+                return;
+            case FIELD_NAME:
+                return;
+            case STRING:
+                add(jString(reader.stringValue()));
+                return;
+            case NUMBER:
+                add(jNum(reader.stringValue()));
+                return;
+            case TRUE:
+                add(jBool(true));
+                return;
+            case FALSE:
+                add(jBool(false));
+                return;
+            default:
+                add(jNull());
+        }
+    }
+
+    /**
+     * Adds a complete value to the container it is in, or keeps it as the top level value
+     */
+    private void add(JsonValue v) {
+        if (depth == 0) {
+            value = v;
+            return;
+        }
+        if (top == elements.length) {
+            names = Arrays.copyOf(names, top * 2);
+            elements = Arrays.copyOf(elements, top * 2);
+        }
+        names[top] = reader.currentName();
+        elements[top++] = v;
+    }
+}
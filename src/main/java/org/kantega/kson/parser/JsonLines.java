@@ -0,0 +1,496 @@
+package org.kantega.kson.parser;
+
+import fj.F;
+import fj.P;
+import fj.P2;
+import fj.data.List;
+import fj.data.Stream;
+import org.kantega.kson.JsonResult;
+import org.kantega.kson.codec.JsonDecoder;
+import org.kantega.kson.json.JsonValue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Reads newline delimited json (JSON Lines), where every line holds one json value. Blank lines are skipped.
+ * Every line is parsed on its own, so a malformed line yields a failure for that record only, and the records
+ * after it are read as usual. Only '\n' ends a line, from bytes, streams and readers alike, so a '\r' is whitespace.
+ * The failures start with the number of their line, counted from 1, and offsets in them are relative to the start
+ * of the line.
+ * <p>
+ * The sequential variants return lazy streams that read the input as the stream is traversed.
+ * The parallel variants split the input into chunks at line boundaries, and parse the chunks in a ForkJoinPool.
+ * The records are always returned in the order of the input.
+ */
+public class JsonLines {
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final int MIN_CHUNK_SIZE      = 1 << 16;
+    private static final int DEFAULT_BLOCK_SIZE  = 1 << 24;
+
+    public static Stream<JsonResult<JsonValue>> parse(Reader reader) {
+        return Stream.iteratorStream(new ReaderLines<>(reader, JsonParser::parse));
+    }
+
+    public static <A> Stream<JsonResult<A>> parse(Reader reader, JsonDecoder<A> decoder) {
+        return Stream.iteratorStream(new ReaderLines<>(reader, line -> JsonParser.parse(line, decoder)));
+    }
+
+    public static Stream<JsonResult<JsonValue>> parse(InputStream in) {
+        return Stream.iteratorStream(new StreamLines<>(in, JsonParser::parse));
+    }
+
+    public static <A> Stream<JsonResult<A>> parse(InputStream in, JsonDecoder<A> decoder) {
+        return Stream.iteratorStream(new StreamLines<>(in, decodeLine(decoder)));
+    }
+
+    public static Stream<JsonResult<JsonValue>> parse(byte[] bytes) {
+        return Stream.iteratorStream(new ByteLines<>(bytes, 0, bytes.length, JsonParser::parse, new LineNumbers(1)));
+    }
+
+    public static <A> Stream<JsonResult<A>> parse(byte[] bytes, JsonDecoder<A> decoder) {
+        return Stream.iteratorStream(new ByteLines<>(bytes, 0, bytes.length, decodeLine(decoder), new LineNumbers(1)));
+    }
+
+    /**
+     * Parses the lines, taking the field names from the cache, so that records with the same fields share
+     * the String instances of the names.
+     */
+    public static Stream<JsonResult<JsonValue>> parse(Reader reader, FieldNameCache names) {
+        return Stream.iteratorStream(new ReaderLines<>(reader, line -> JsonParser.parse(line, names)));
+    }
+
+    public static Stream<JsonResult<JsonValue>> parse(InputStream in, FieldNameCache names) {
+        return Stream.iteratorStream(new StreamLines<>(in, parseLine(names)));
+    }
+
+    public static Stream<JsonResult<JsonValue>> parse(byte[] bytes, FieldNameCache names) {
+        return Stream.iteratorStream(new ByteLines<>(bytes, 0, bytes.length, parseLine(names), new LineNumbers(1)));
+    }
+
+    /**
+     * Parses the lines of the utf-8 encoded input in parallel in the pool.
+     *
+     * @param bytes The json lines
+     * @param pool  The pool that parses the chunks of the input
+     * @return The records, in the order of the input
+     */
+    public static List<JsonResult<JsonValue>> parseParallel(byte[] bytes, ForkJoinPool pool) {
+        return parseChunks(bytes, 0, bytes.length, JsonParser::parse, pool);
+    }
+
+    public static <A> List<JsonResult<A>> parseParallel(byte[] bytes, JsonDecoder<A> decoder, ForkJoinPool pool) {
+        return parseChunks(bytes, 0, bytes.length, decodeLine(decoder), pool);
+    }
+
+    public static List<JsonResult<JsonValue>> parseParallel(byte[] bytes, FieldNameCache names, ForkJoinPool pool) {
+        return parseChunks(bytes, 0, bytes.length, parseLine(names), pool);
+    }
+
+    /**
+     * Reads the stream in large blocks, and parses the lines of each block in parallel in the pool. The next block is
+     * read when the stream is traversed past the records of the current one.
+     *
+     * @param in   The utf-8 encoded json lines
+     * @param pool The pool that parses the chunks of each block
+     * @return A lazy stream of the records, in the order of the input
+     */
+    public static Stream<JsonResult<JsonValue>> parseParallel(InputStream in, ForkJoinPool pool) {
+        return Stream.iteratorStream(new ParallelBlocks<>(in, JsonParser::parse, pool));
+    }
+
+    public static <A> Stream<JsonResult<A>> parseParallel(InputStream in, JsonDecoder<A> decoder, ForkJoinPool pool) {
+        return Stream.iteratorStream(new ParallelBlocks<>(in, decodeLine(decoder), pool));
+    }
+
+    public static Stream<JsonResult<JsonValue>> parseParallel(InputStream in, FieldNameCache names, ForkJoinPool pool) {
+        return Stream.iteratorStream(new ParallelBlocks<>(in, parseLine(names), pool));
+    }
+
+    private static LineParser<JsonValue> parseLine(FieldNameCache names) {
+        return (bytes, offset, length) -> JsonParser.parse(bytes, offset, length, names);
+    }
+
+    private static <A> LineParser<A> decodeLine(JsonDecoder<A> decoder) {
+        return (bytes, offset, length) -> JsonParser.parse(bytes, offset, length, decoder);
+    }
+
+    private static <A> List<JsonResult<A>> parseChunks(byte[] bytes, int from, int to, LineParser<A> parseLine, ForkJoinPool pool) {
+        return parseChunks(bytes, from, to, parseLine, pool, chunkSize(from, to, pool), 1)._1();
+    }
+
+    static <A> List<JsonResult<A>> parseChunks(byte[] bytes, int from, int to, LineParser<A> parseLine, ForkJoinPool pool, int chunkSize) {
+        return parseChunks(bytes, from, to, parseLine, pool, chunkSize, 1)._1();
+    }
+
+    private static int chunkSize(int from, int to, ForkJoinPool pool) {
+        return Math.max(MIN_CHUNK_SIZE, (to - from) / (pool.getParallelism() * 4) + 1);
+    }
+
+    /**
+     * Splits the input into chunks of at least chunkSize bytes that end at a line boundary, and parses each chunk in the pool.
+     * The chunks count their own lines, and are given the number of their first line when the chunks before them are joined.
+     *
+     * @return The records, and the number of the line after the input
+     */
+    private static <A> P2<List<JsonResult<A>>, Long> parseChunks(byte[] bytes, int from, int to, LineParser<A> parseLine, ForkJoinPool pool, int chunkSize, long firstLine) {
+        List<P2<LineNumbers, ForkJoinTask<List<JsonResult<A>>>>> chunks = List.nil();
+        int                                                        start  = from;
+        while (start < to) {
+            int         chunkStart = start;
+            int         chunkEnd   = lineEnd(bytes, Math.min(to, start + chunkSize), to);
+            LineNumbers numbers    = new LineNumbers(0);
+            chunks = chunks.cons(P.p(numbers, pool.submit(() -> List.fromIterator(new ByteLines<>(bytes, chunkStart, chunkEnd, parseLine, numbers)))));
+            start = chunkEnd;
+        }
+        List.Buffer<JsonResult<A>> records = new List.Buffer<>();
+        long                       line    = firstLine;
+        for (P2<LineNumbers, ForkJoinTask<List<JsonResult<A>>>> chunk : chunks.reverse()) {
+            records.append(chunk._2().join());
+            chunk._1().first = line;
+            line += chunk._1().count;
+        }
+        return P.p(records.toList(), line);
+    }
+
+    /**
+     * Finds the end of the line that the byte before position is part of
+     */
+    private static int lineEnd(byte[] bytes, int position, int to) {
+        for (int i = position - 1; i < to; i++) {
+            if (bytes[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return to;
+    }
+
+    private static boolean isBlank(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = bytes[i];
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isBlank(char[] chars, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = chars[i];
+            if (c != ' ' && c != '\t' && c != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    interface LineParser<A> {
+        JsonResult<A> parse(byte[] bytes, int offset, int length);
+    }
+
+    /**
+     * Numbers the lines of an input, or of a chunk of it, and starts the failures of the records with the number of
+     * their line. The failure messages are made lazily, so the number of the first line of a chunk that is parsed in
+     * parallel can be set after the chunk has been parsed.
+     */
+    private static final class LineNumbers {
+
+        long first;
+        long count;
+
+        LineNumbers(long first) {
+            this.first = first;
+        }
+
+        /**
+         * Counts the next line, and numbers the record read from it
+         */
+        <A> JsonResult<A> next(JsonResult<A> record) {
+            long line = count++;
+            return record.isSuccess() ? record : record.mapFail(message -> "Line " + (first + line) + ": " + message);
+        }
+
+        void skip() {
+            count++;
+        }
+    }
+
+    /**
+     * Iterates over records, reading one ahead. Reading stops at the first IOException, which is yielded as a failure.
+     */
+    private static abstract class Records<A> implements Iterator<JsonResult<A>> {
+
+        private JsonResult<A> next;
+        private boolean       done;
+
+        /**
+         * @return the next record, or null if there are no more
+         */
+        abstract JsonResult<A> readNext() throws IOException;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                try {
+                    next = readNext();
+                    done = next == null;
+                } catch (IOException ioe) {
+                    next = JsonParser.ioFailure(ioe);
+                    done = true;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public JsonResult<A> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            JsonResult<A> result = next;
+            next = null;
+            return result;
+        }
+    }
+
+    /**
+     * Reads lines from the reader into a buffer that grows to hold the longest line, the same way StreamLines does.
+     */
+    private static class ReaderLines<A> extends Records<A> {
+
+        private final Reader                   reader;
+        private final F<String, JsonResult<A>> parseLine;
+        private final LineNumbers              numbers;
+        private       char[]                   buffer;
+        private       int                      start;
+        private       int                      fill;
+        private       boolean                  endOfStream;
+
+        ReaderLines(Reader reader, F<String, JsonResult<A>> parseLine) {
+            this.reader = reader;
+            this.parseLine = parseLine;
+            this.numbers = new LineNumbers(1);
+            this.buffer = new char[DEFAULT_BUFFER_SIZE];
+        }
+
+        @Override
+        JsonResult<A> readNext() throws IOException {
+            int searched = start;
+            while (true) {
+                int lineEnd = searched;
+                while (lineEnd < fill && buffer[lineEnd] != '\n') {
+                    lineEnd++;
+                }
+                if (lineEnd == fill && !endOfStream) {
+                    searched = lineEnd - start;
+                    fillBuffer();
+                    searched += start;
+                    continue;
+                }
+                if (lineEnd == fill && start == fill) {
+                    return null;
+                }
+                int lineStart = start;
+                start = Math.min(lineEnd + 1, fill);
+                if (!isBlank(buffer, lineStart, lineEnd)) {
+                    return numbers.next(parseLine.f(new String(buffer, lineStart, lineEnd - lineStart)));
+                }
+                numbers.skip();
+                searched = start;
+            }
+        }
+
+        private void fillBuffer() throws IOException {
+            int unread = fill - start;
+            if (unread == buffer.length) {
+                char[] grown = new char[buffer.length * 2];
+                System.arraycopy(buffer, start, grown, 0, unread);
+                buffer = grown;
+            } else {
+                System.arraycopy(buffer, start, buffer, 0, unread);
+            }
+            start = 0;
+            fill = unread;
+            int read = reader.read(buffer, fill, buffer.length - fill);
+            if (read == -1) {
+                endOfStream = true;
+            } else {
+                fill += read;
+            }
+        }
+    }
+
+    private static class ByteLines<A> extends Records<A> {
+
+        private final byte[]        bytes;
+        private final int           end;
+        private final LineParser<A> parseLine;
+        private final LineNumbers   numbers;
+        private       int           position;
+
+        ByteLines(byte[] bytes, int from, int to, LineParser<A> parseLine, LineNumbers numbers) {
+            this.bytes = bytes;
+            this.position = from;
+            this.end = to;
+            this.parseLine = parseLine;
+            this.numbers = numbers;
+        }
+
+        @Override
+        JsonResult<A> readNext() {
+            while (position < end) {
+                int lineStart = position;
+                int lineEnd   = lineStart;
+                while (lineEnd < end && bytes[lineEnd] != '\n') {
+                    lineEnd++;
+                }
+                position = lineEnd + 1;
+                if (!isBlank(bytes, lineStart, lineEnd)) {
+                    return numbers.next(parseLine.parse(bytes, lineStart, lineEnd - lineStart));
+                }
+                numbers.skip();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Reads lines from the stream into a buffer that grows to hold the longest line, and parses them in place.
+     */
+    private static class StreamLines<A> extends Records<A> {
+
+        private final InputStream   in;
+        private final LineParser<A> parseLine;
+        private final LineNumbers   numbers;
+        private       byte[]        buffer;
+        private       int           start;
+        private       int           fill;
+        private       boolean       endOfStream;
+
+        StreamLines(InputStream in, LineParser<A> parseLine) {
+            this.in = in;
+            this.parseLine = parseLine;
+            this.numbers = new LineNumbers(1);
+            this.buffer = new byte[DEFAULT_BUFFER_SIZE];
+        }
+
+        @Override
+        JsonResult<A> readNext() throws IOException {
+            int searched = start;
+            while (true) {
+                int lineEnd = searched;
+                while (lineEnd < fill && buffer[lineEnd] != '\n') {
+                    lineEnd++;
+                }
+                if (lineEnd == fill && !endOfStream) {
+                    searched = lineEnd - start;
+                    fillBuffer();
+                    searched += start;
+                    continue;
+                }
+                if (lineEnd == fill && start == fill) {
+                    return null;
+                }
+                int lineStart = start;
+                start = Math.min(lineEnd + 1, fill);
+                if (!isBlank(buffer, lineStart, lineEnd)) {
+                    return numbers.next(parseLine.parse(buffer, lineStart, lineEnd - lineStart));
+                }
+                numbers.skip();
+                searched = start;
+            }
+        }
+
+        /**
+         * Moves the unread bytes to the start of the buffer, growing it if it is full, and reads more from the stream
+         */
+        private void fillBuffer() throws IOException {
+            int unread = fill - start;
+            if (unread == buffer.length) {
+                byte[] grown = new byte[buffer.length * 2];
+                System.arraycopy(buffer, start, grown, 0, unread);
+                buffer = grown;
+            } else {
+                System.arraycopy(buffer, start, buffer, 0, unread);
+            }
+            start = 0;
+            fill = unread;
+            int read = in.read(buffer, fill, buffer.length - fill);
+            if (read == -1) {
+                endOfStream = true;
+            } else {
+                fill += read;
+            }
+        }
+    }
+
+    /**
+     * Reads the stream in blocks that end at a line boundary, and parses each block in parallel.
+     */
+    private static class ParallelBlocks<A> extends Records<A> {
+
+        private final InputStream             in;
+        private final LineParser<A>           parseLine;
+        private final ForkJoinPool            pool;
+        private       byte[]                  buffer;
+        private       int                     fill;
+        private       boolean                 endOfStream;
+        private       Iterator<JsonResult<A>> block;
+        private       long                    line;
+
+        ParallelBlocks(InputStream in, LineParser<A> parseLine, ForkJoinPool pool) {
+            this.in = in;
+            this.parseLine = parseLine;
+            this.pool = pool;
+            this.buffer = new byte[DEFAULT_BLOCK_SIZE];
+            this.block = List.<JsonResult<A>>nil().iterator();
+            this.line = 1;
+        }
+
+        @Override
+        JsonResult<A> readNext() throws IOException {
+            while (!block.hasNext()) {
+                if (endOfStream && fill == 0) {
+                    return null;
+                }
+                block = readBlock().iterator();
+            }
+            return block.next();
+        }
+
+        private List<JsonResult<A>> readBlock() throws IOException {
+            while (!endOfStream && fill < buffer.length) {
+                int read = in.read(buffer, fill, buffer.length - fill);
+                if (read == -1) {
+                    endOfStream = true;
+                } else {
+                    fill += read;
+                }
+            }
+            int blockEnd = fill;
+            if (!endOfStream) {
+                while (blockEnd > 0 && buffer[blockEnd - 1] != '\n') {
+                    blockEnd--;
+                }
+                if (blockEnd == 0) {
+                    byte[] grown = new byte[buffer.length * 2];
+                    System.arraycopy(buffer, 0, grown, 0, fill);
+                    buffer = grown;
+                    return List.nil();
+                }
+            }
+            P2<List<JsonResult<A>>, Long> records = parseChunks(buffer, 0, blockEnd, parseLine, pool, chunkSize(0, blockEnd, pool), line);
+            System.arraycopy(buffer, blockEnd, buffer, 0, fill - blockEnd);
+            fill -= blockEnd;
+            line = records._2();
+            return records._1();
+        }
+    }
+}
@@ -1,18 +1,23 @@
-
 package org.kantega.kson.parser;
 
-import fj.Ord;
 import fj.data.List;
-import fj.data.TreeMap;
 import org.kantega.kson.JsonResult;
+import org.kantega.kson.codec.JsonDecoder;
 import org.kantega.kson.json.JsonArray;
 import org.kantega.kson.json.JsonObject;
 import org.kantega.kson.json.JsonValue;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
-import java.io.StringReader;
-import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import static org.kantega.kson.json.JsonValues.*;
 
@@ -21,393 +26,616 @@ import static org.kantega.kson.json.JsonValues.*;
  */
 public class JsonParser {
 
-    private static final int MIN_BUFFER_SIZE     = 10;
-    private static final int DEFAULT_BUFFER_SIZE = 1024;
-
-    private final Reader        reader;
-    private final char[]        buffer;
-    private       int           bufferOffset;
-    private       int           index;
-    private       int           fill;
-    private       int           line;
-    private       int           lineOffset;
-    private       int           current;
-    private       StringBuilder captureBuffer;
-    private       int           captureStart;
-
-  /*
-   * |                      bufferOffset
-   *                        v
-   * [a|b|c|d|e|f|g|h|i|j|k|l|m|n|o|p|q|r|s|t]        < input
-   *                       [l|m|n|o|p|q|r|s|t|?|?]    < buffer
-   *                          ^               ^
-   *                       |  index           fill
-   */
-
-    private JsonParser(String string) {
-        this(new StringReader(string),
-          Math.max(MIN_BUFFER_SIZE, Math.min(DEFAULT_BUFFER_SIZE, string.length())));
-    }
-
-    private JsonParser(Reader reader) {
-        this(reader, DEFAULT_BUFFER_SIZE);
-    }
-
-    private JsonParser(Reader reader, int buffersize) {
-        this.reader = reader;
-        buffer = new char[buffersize];
-        line = 1;
-        captureStart = -1;
-    }
-
-    private JsonValue parse() throws IOException {
-        read();
-        skipWhiteSpace();
-        JsonValue result = readValue();
-        skipWhiteSpace();
-        if (!isEndOfText()) {
-            throw error("Unexpected character");
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+
+    /**
+     * The largest file that parseParallel(file) reads into a byte[], a little below the largest array the jvm allocates
+     */
+    private static final long MAX_PARALLEL_FILE_SIZE = Integer.MAX_VALUE - 8;
+
+    private JsonScanner scanner;
+    private String[]    names;
+    private JsonValue[] elements;
+    private int         top;
+
+    JsonParser(JsonScanner scanner) {
+        this.scanner = scanner;
+        this.names = new String[16];
+        this.elements = new JsonValue[16];
+    }
+
+    /**
+     * Drops the scanner and the references to the parsed values, so that the parser can be reused. Stacks that
+     * have grown large are dropped too.
+     */
+    void clear() {
+        scanner = null;
+        top = 0;
+        if (elements.length > Reusables.MAX_REUSED_STACK) {
+            names = new String[16];
+            elements = new JsonValue[16];
+        } else {
+            Arrays.fill(names, null);
+            Arrays.fill(elements, null);
+        }
+    }
+
+    private JsonValue parse(JsonProjection projection) throws IOException {
+        scanner.read();
+        scanner.skipWhiteSpace();
+        JsonValue result = readValue(projection);
+        scanner.skipWhiteSpace();
+        if (!scanner.isEndOfText()) {
+            throw scanner.error("Unexpected character");
         }
         return result;
     }
 
     public static JsonResult<JsonValue> parse(String string) {
-        try {
-            return JsonResult.success(new JsonParser(string).parse());
-        } catch (IOException ioe) {
-            return JsonResult.fail("IOException while parsing: " + ioe.getMessage());
-        } catch (ParseFailure f) {
-            return JsonResult.fail("Failed to parse resource: " + f.getMessage() + ": line " + f.line + ", " + f.offset + ", i" + f.i);
-        }
+        return parse(string, (FieldNameCache) null);
     }
 
     public static JsonResult<JsonValue> parse(Reader string) {
-        try {
-            return JsonResult.success(new JsonParser(string).parse());
+        return parse(new CharScanner(string));
+    }
+
+    /**
+     * Parses utf-8 encoded json. The bytes are scanned in place, only the contents of strings are decoded.
+     *
+     * @param bytes The utf-8 encoded json
+     * @return The parsed value, or a failure
+     */
+    public static JsonResult<JsonValue> parse(byte[] bytes) {
+        return parse(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Parses the utf-8 encoded json in the given region of the array. Offsets in failures are relative to the start
+     * of the region.
+     *
+     * @param bytes  The array holding the json
+     * @param offset Where the json starts
+     * @param length The number of bytes to parse
+     * @return The parsed value, or a failure
+     */
+    public static JsonResult<JsonValue> parse(byte[] bytes, int offset, int length) {
+        return parse(bytes, offset, length, (FieldNameCache) null);
+    }
+
+    /**
+     * Parses the remaining utf-8 encoded bytes of the buffer. The position of the buffer is left untouched.
+     *
+     * @param bytes The utf-8 encoded json
+     * @return The parsed value, or a failure
+     */
+    public static JsonResult<JsonValue> parse(ByteBuffer bytes) {
+        return parse(JsonScanner.scanner(bytes));
+    }
+
+    /**
+     * Parses utf-8 encoded json from the stream. The stream is read to the end, but not closed.
+     *
+     * @param in The stream of utf-8 encoded json
+     * @return The parsed value, or a failure
+     */
+    public static JsonResult<JsonValue> parse(InputStream in) {
+        return parse(new Utf8Scanner(in));
+    }
+
+    /**
+     * Parses the utf-8 encoded json file. The file is memory mapped, and the mapped bytes are scanned in place, so
+     * no intermediate buffers are involved. Files larger than what one mapping can hold are mapped
+     * in consecutive windows.
+     *
+     * @param file The file to parse
+     * @return The parsed value, or a failure
+     */
+    public static JsonResult<JsonValue> parse(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return parse(ByteBufferScanner.mapped(channel, ByteBufferScanner.DEFAULT_WINDOW_SIZE));
         } catch (IOException ioe) {
-            return JsonResult.fail("IOException while parsing: " + ioe.getMessage());
-        } catch (ParseFailure f) {
-            return JsonResult.fail("Failed to parse resource: " + f.getMessage() + ": line " + f.line + ", " + f.offset + ", i" + f.i);
+            return ioFailure(ioe);
         }
     }
 
-    private JsonValue readValue() throws IOException {
-        switch (current) {
-            case 'n':
-                return readNull();
-            case 't':
-                return readTrue();
-            case 'f':
-                return readFalse();
-            case '"':
-                return readString();
-            case '[':
-                return readArray();
-            case '{':
-                return readObject();
-            case '-':
-            case '0':
-            case '1':
-            case '2':
-            case '3':
-            case '4':
-            case '5':
-            case '6':
-            case '7':
-            case '8':
-            case '9':
-                return readNumber();
-            default:
-                throw expected("value");
+    /**
+     * Parses the json, taking the field names from the cache. Documents that repeat the same names then share
+     * one String instance per name, instead of allocating a new one for every occurrence.
+     *
+     * @param json  The json to parse
+     * @param names The cache of field names, which can be shared between threads
+     * @return The parsed value, or a failure
+     */
+    public static JsonResult<JsonValue> parse(String json, FieldNameCache names) {
+        Reusables reusables = Reusables.acquire();
+        try {
+            return parse(reusables.parser, reusables.chars.reset(json).withNames(names));
+        } finally {
+            reusables.release();
         }
     }
 
-    private JsonArray readArray() throws IOException {
-        read();
-        skipWhiteSpace();
-        if (readChar(']')) {
-            return new JsonArray(List.nil());
-        }
-        List<JsonValue> list = List.nil();
-        do {
-            skipWhiteSpace();
-            list = list.cons(readValue());
-            skipWhiteSpace();
-        } while (readChar(','));
-        if (!readChar(']')) {
-            throw expected("',' or ']'");
-        }
-        return new JsonArray(list.reverse());
+    public static JsonResult<JsonValue> parse(Reader json, FieldNameCache names) {
+        return parse(new CharScanner(json).withNames(names));
     }
 
-    private JsonObject readObject() throws IOException {
-        read();
-        skipWhiteSpace();
-        if (readChar('}')) {
-            return new JsonObject(TreeMap.empty(Ord.stringOrd));
-        }
-        TreeMap<String, JsonValue> contents = TreeMap.empty(Ord.stringOrd);
-        do {
-            skipWhiteSpace();
-            String name = readName();
-            skipWhiteSpace();
-            if (!readChar(':')) {
-                throw expected("':'");
-            }
-            skipWhiteSpace();
-            contents = contents.set(name, readValue());
-            skipWhiteSpace();
-        } while (readChar(','));
-        if (!readChar('}')) {
-            throw expected("',' or '}'");
-        }
-        return new JsonObject(contents);
+    public static JsonResult<JsonValue> parse(byte[] bytes, FieldNameCache names) {
+        return parse(bytes, 0, bytes.length, names);
     }
 
-    private String readName() throws IOException {
-        if (current != '"') {
-            throw expected("name");
+    public static JsonResult<JsonValue> parse(byte[] bytes, int offset, int length, FieldNameCache names) {
+        Reusables reusables = Reusables.acquire();
+        try {
+            return parse(reusables.parser, reusables.bytes.reset(bytes, offset, length).withNames(names));
+        } finally {
+            reusables.release();
         }
-        return readStringInternal();
     }
 
-    private JsonValue readNull() throws IOException {
-        read();
-        readRequiredChar('u');
-        readRequiredChar('l');
-        readRequiredChar('l');
-        return jNull();
+    public static JsonResult<JsonValue> parse(ByteBuffer bytes, FieldNameCache names) {
+        return parse(JsonScanner.scanner(bytes).withNames(names));
+    }
+
+    public static JsonResult<JsonValue> parse(InputStream in, FieldNameCache names) {
+        return parse(new Utf8Scanner(in).withNames(names));
     }
 
-    private JsonValue readTrue() throws IOException {
-        read();
-        readRequiredChar('r');
-        readRequiredChar('u');
-        readRequiredChar('e');
-        return jBool(true);
+    public static JsonResult<JsonValue> parse(Path file, FieldNameCache names) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return parse(ByteBufferScanner.mapped(channel, ByteBufferScanner.DEFAULT_WINDOW_SIZE).withNames(names));
+        } catch (IOException ioe) {
+            return ioFailure(ioe);
+        }
     }
 
-    private JsonValue readFalse() throws IOException {
-        read();
-        readRequiredChar('a');
-        readRequiredChar('l');
-        readRequiredChar('s');
-        readRequiredChar('e');
-        return jBool(false);
+    /**
+     * Parses utf-8 encoded json, splitting a large top level array between the threads of the pool. A quick scan
+     * finds the boundaries of the elements of the array, and the elements are parsed in chunks, in parallel. The
+     * chunks are joined into one JsonArray, in order.
+     * Documents that are small, or not an array, are parsed sequentially. If the document is malformed, it is parsed
+     * again sequentially, so the failure is the same as the one parse(bytes) gives.
+     *
+     * @param bytes The utf-8 encoded json
+     * @param pool  The pool that parses the chunks
+     * @return The parsed value, or a failure
+     */
+    public static JsonResult<JsonValue> parseParallel(byte[] bytes, ForkJoinPool pool) {
+        return parseParallel(bytes, null, pool);
     }
 
-    private void readRequiredChar(char ch) throws IOException {
-        if (!readChar(ch)) {
-            throw expected("'" + ch + "'");
-        }
+    /**
+     * Reads the file into a byte[], and parses it in parallel like parseParallel(bytes, pool). A file too large for a
+     * byte[], from 2 GB, is parsed sequentially from a mapping of the file instead, like parse(file).
+     */
+    public static JsonResult<JsonValue> parseParallel(Path file, ForkJoinPool pool) {
+        return parseParallel(file, null, pool);
     }
 
-    private JsonValue readString() throws IOException {
-        return jString(readStringInternal());
+    /**
+     * Parses in parallel like parseParallel(bytes, pool), taking the field names from the cache.
+     */
+    public static JsonResult<JsonValue> parseParallel(byte[] bytes, FieldNameCache names, ForkJoinPool pool) {
+        return parseParallel(bytes, names, pool, Math.max(MIN_CHUNK_SIZE, bytes.length / (pool.getParallelism() * 4) + 1));
     }
 
-    private String readStringInternal() throws IOException {
-        read();
-        startCapture();
-        while (current != '"') {
-            if (current == '\\') {
-                pauseCapture();
-                readEscape();
-                startCapture();
-            } else if (current < 0x20) {
-                throw expected("valid string character");
-            } else {
-                read();
+    public static JsonResult<JsonValue> parseParallel(Path file, FieldNameCache names, ForkJoinPool pool) {
+        try {
+            if (Files.size(file) > MAX_PARALLEL_FILE_SIZE) {
+                return parse(file, names);
             }
+            return parseParallel(Files.readAllBytes(file), names, pool);
+        } catch (IOException ioe) {
+            return ioFailure(ioe);
         }
-        String string = endCapture();
-        read();
-        return string;
     }
 
-    private void readEscape() throws IOException {
-        read();
-        switch (current) {
-            case '"':
-            case '/':
-            case '\\':
-                captureBuffer.append((char) current);
-                break;
-            case 'b':
-                captureBuffer.append('\b');
-                break;
-            case 'f':
-                captureBuffer.append('\f');
-                break;
-            case 'n':
-                captureBuffer.append('\n');
-                break;
-            case 'r':
-                captureBuffer.append('\r');
-                break;
-            case 't':
-                captureBuffer.append('\t');
-                break;
-            case 'u':
-                char[] hexChars = new char[4];
-                for (int i = 0; i < 4; i++) {
-                    read();
-                    if (!isHexDigit()) {
-                        throw expected("hexadecimal digit");
+    /**
+     * Splits the elements of the top level array into chunks of at least chunkSize bytes.
+     */
+    static JsonResult<JsonValue> parseParallel(byte[] bytes, FieldNameCache names, ForkJoinPool pool, int chunkSize) {
+        int start = 0;
+        while (start < bytes.length && isWhiteSpace(bytes[start])) {
+            start++;
+        }
+        if (bytes.length - start < 2 * chunkSize || bytes[start] != '[') {
+            return parse(bytes, names);
+        }
+        List<ForkJoinTask<JsonValue[]>> tasks      = List.nil();
+        int                             chunkStart = start + 1;
+        int                             depth      = 1;
+        int                             i          = chunkStart;
+        for (; i < bytes.length && depth > 0; i++) {
+            switch (bytes[i]) {
+                case '"':
+                    i++;
+                    while (i < bytes.length && bytes[i] != '"') {
+                        i += bytes[i] == '\\' ? 2 : 1;
                     }
-                    hexChars[i] = (char) current;
-                }
-                captureBuffer.append((char) Integer.parseInt(new String(hexChars), 16));
-                break;
-            default:
-                throw expected("valid escape sequence");
+                    break;
+                case '[':
+                case '{':
+                    depth++;
+                    break;
+                case ']':
+                case '}':
+                    depth--;
+                    break;
+                case ',':
+                    if (depth == 1 && i - chunkStart >= chunkSize) {
+                        tasks = tasks.cons(submitChunk(bytes, chunkStart, i, names, pool));
+                        chunkStart = i + 1;
+                    }
+                    break;
+            }
         }
-        read();
-    }
-
-    private JsonValue readNumber() throws IOException {
-        startCapture();
-        readChar('-');
-        int firstDigit = current;
-        if (!readDigit()) {
-            throw expected("digit");
+        int end = i;
+        while (i < bytes.length && isWhiteSpace(bytes[i])) {
+            i++;
+        }
+        if (depth > 0 || i < bytes.length || tasks.isEmpty()) {
+            tasks.foreachDoEffect(task -> task.cancel(true));
+            return parse(bytes, names);
         }
-        if (firstDigit != '0') {
-            while (readDigit()) {
+        tasks = tasks.cons(submitChunk(bytes, chunkStart, end - 1, names, pool));
+        try {
+            List<JsonValue[]> chunks = tasks.reverse().map(ForkJoinTask::join);
+            JsonValue[]       values = new JsonValue[chunks.foldLeft((length, chunk) -> length + chunk.length, 0)];
+            int               length = 0;
+            for (JsonValue[] chunk : chunks) {
+                System.arraycopy(chunk, 0, values, length, chunk.length);
+                length += chunk.length;
             }
+            return JsonResult.success(JsonArray.copyOf(values, 0, length));
+        } catch (RuntimeException e) {
+            tasks.foreachDoEffect(task -> task.cancel(true));
+            return parse(bytes, names);
         }
-        readFraction();
-        readExponent();
-        return jNum(new BigDecimal(endCapture()));
     }
 
-    private boolean readFraction() throws IOException {
-        if (!readChar('.')) {
-            return false;
-        }
-        if (!readDigit()) {
-            throw expected("digit");
-        }
-        while (readDigit()) {
+    private static ForkJoinTask<JsonValue[]> submitChunk(byte[] bytes, int from, int to, FieldNameCache names, ForkJoinPool pool) {
+        return pool.submit(() -> new JsonParser(new Utf8Scanner(bytes, from, to - from).withNames(names)).readElements());
+    }
+
+    private static boolean isWhiteSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static JsonResult<JsonValue> parse(JsonScanner scanner) {
+        Reusables reusables = Reusables.acquire();
+        try {
+            return parse(reusables.parser, scanner);
+        } finally {
+            reusables.release();
         }
-        return true;
     }
 
-    private boolean readExponent() throws IOException {
-        if (!readChar('e') && !readChar('E')) {
-            return false;
+    private static JsonResult<JsonValue> parse(JsonParser parser, JsonScanner scanner) {
+        return parse(parser, scanner, JsonProjection.whole);
+    }
+
+    private static JsonResult<JsonValue> parse(JsonParser parser, JsonScanner scanner, JsonProjection projection) {
+        try {
+            parser.scanner = scanner;
+            return JsonResult.success(parser.parse(projection));
+        } catch (IOException ioe) {
+            return ioFailure(ioe);
+        } catch (ParseFailure f) {
+            return parseFailure(f);
         }
-        if (!readChar('+')) {
-            readChar('-');
+    }
+
+    /**
+     * Parses the json and decodes it with the decoder in one pass, straight from the tokens of the input.
+     * The result is the same as for parse(json).decode(decoder), but the decoders in JsonDecoders
+     * do not need to build the JsonValue tree.
+     *
+     * @param json    The json to parse
+     * @param decoder The decoder for the top level value
+     * @param <A>     The type of the decoded value
+     * @return The decoded value, or a failure
+     */
+    public static <A> JsonResult<A> parse(String json, JsonDecoder<A> decoder) {
+        Reusables reusables = Reusables.acquire();
+        try {
+            return parse(reusables.reader, reusables.chars.reset(json), decoder);
+        } finally {
+            reusables.release();
         }
-        if (!readDigit()) {
-            throw expected("digit");
+    }
+
+    public static <A> JsonResult<A> parse(Reader json, JsonDecoder<A> decoder) {
+        return parse(new CharScanner(json), decoder);
+    }
+
+    public static <A> JsonResult<A> parse(byte[] json, JsonDecoder<A> decoder) {
+        return parse(json, 0, json.length, decoder);
+    }
+
+    public static <A> JsonResult<A> parse(byte[] json, int offset, int length, JsonDecoder<A> decoder) {
+        Reusables reusables = Reusables.acquire();
+        try {
+            return parse(reusables.reader, reusables.bytes.reset(json, offset, length), decoder);
+        } finally {
+            reusables.release();
         }
-        while (readDigit()) {
+    }
+
+    public static <A> JsonResult<A> parse(ByteBuffer json, JsonDecoder<A> decoder) {
+        return parse(JsonScanner.scanner(json), decoder);
+    }
+
+    public static <A> JsonResult<A> parse(InputStream json, JsonDecoder<A> decoder) {
+        return parse(new Utf8Scanner(json), decoder);
+    }
+
+    public static <A> JsonResult<A> parse(Path file, JsonDecoder<A> decoder) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return parse(ByteBufferScanner.mapped(channel, ByteBufferScanner.DEFAULT_WINDOW_SIZE), decoder);
+        } catch (IOException ioe) {
+            return ioFailure(ioe);
         }
-        return true;
     }
 
-    private boolean readChar(char ch) throws IOException {
-        if (current != ch) {
-            return false;
+    private static <A> JsonResult<A> parse(JsonScanner scanner, JsonDecoder<A> decoder) {
+        Reusables reusables = Reusables.acquire();
+        try {
+            return parse(reusables.reader, scanner, decoder);
+        } finally {
+            reusables.release();
         }
-        read();
-        return true;
     }
 
-    private boolean readDigit() throws IOException {
-        if (!isDigit()) {
-            return false;
+    private static <A> JsonResult<A> parse(JsonReader reader, JsonScanner scanner, JsonDecoder<A> decoder) {
+        try {
+            reader.reset(scanner);
+            reader.nextToken();
+            JsonResult<A> result = decoder.decode(reader);
+            reader.nextToken();
+            return result;
+        } catch (IOException ioe) {
+            return ioFailure(ioe);
+        } catch (ParseFailure f) {
+            return parseFailure(f);
         }
-        read();
-        return true;
     }
 
-    private void skipWhiteSpace() throws IOException {
-        while (isWhiteSpace()) {
-            read();
+    /**
+     * Parses only the parts of the json that are in the projection. Everything else is checked, so the json
+     * fails to parse the same way as it does without a projection, but it is skipped without being built.
+     *
+     * @param json       The json to parse
+     * @param projection The paths of the values to keep
+     * @return The sparse value, or a failure
+     */
+    public static JsonResult<JsonValue> parse(String json, JsonProjection projection) {
+        Reusables reusables = Reusables.acquire();
+        try {
+            return parse(reusables.parser, reusables.chars.reset(json), projection);
+        } finally {
+            reusables.release();
         }
     }
 
-    private void read() throws IOException {
-        if (index == fill) {
-            if (captureStart != -1) {
-                captureBuffer.append(buffer, captureStart, fill - captureStart);
-                captureStart = 0;
-            }
-            bufferOffset += fill;
-            fill = reader.read(buffer, 0, buffer.length);
-            index = 0;
-            if (fill == -1) {
-                current = -1;
-                return;
-            }
+    public static JsonResult<JsonValue> parse(byte[] json, JsonProjection projection) {
+        return parse(json, 0, json.length, projection);
+    }
+
+    public static JsonResult<JsonValue> parse(byte[] json, int offset, int length, JsonProjection projection) {
+        Reusables reusables = Reusables.acquire();
+        try {
+            return parse(reusables.parser, reusables.bytes.reset(json, offset, length), projection);
+        } finally {
+            reusables.release();
         }
-        if (current == '\n') {
-            line++;
-            lineOffset = bufferOffset + index;
+    }
+
+    public static JsonResult<JsonValue> parse(ByteBuffer json, JsonProjection projection) {
+        return parse(JsonScanner.scanner(json), projection);
+    }
+
+    public static JsonResult<JsonValue> parse(InputStream json, JsonProjection projection) {
+        return parse(new Utf8Scanner(json), projection);
+    }
+
+    public static JsonResult<JsonValue> parse(Path file, JsonProjection projection) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return parse(ByteBufferScanner.mapped(channel, ByteBufferScanner.DEFAULT_WINDOW_SIZE), projection);
+        } catch (IOException ioe) {
+            return ioFailure(ioe);
         }
-        current = buffer[index++];
     }
 
-    private void startCapture() {
-        if (captureBuffer == null) {
-            captureBuffer = new StringBuilder();
+    private static JsonResult<JsonValue> parse(JsonScanner scanner, JsonProjection projection) {
+        Reusables reusables = Reusables.acquire();
+        try {
+            return parse(reusables.parser, scanner, projection);
+        } finally {
+            reusables.release();
         }
-        captureStart = index - 1;
     }
 
-    private void pauseCapture() {
-        int end = current == -1 ? index : index - 1;
-        captureBuffer.append(buffer, captureStart, end - captureStart);
-        captureStart = -1;
+    static <A> JsonResult<A> ioFailure(IOException ioe) {
+        return JsonResult.fail("IOException while parsing: " + ioe.getMessage());
     }
 
-    private String endCapture() {
-        int    end = current == -1 ? index : index - 1;
-        String captured;
-        if (captureBuffer.length() > 0) {
-            captureBuffer.append(buffer, captureStart, end - captureStart);
-            captured = captureBuffer.toString();
-            captureBuffer.setLength(0);
-        } else {
-            captured = new String(buffer, captureStart, end - captureStart);
-        }
-        captureStart = -1;
-        return captured;
+    static <A> JsonResult<A> parseFailure(ParseFailure f) {
+        return JsonResult.fail("Failed to parse resource: " + f.getMessage() + ": line " + f.line + ", " + f.position + ", i" + f.column);
     }
 
-    private ParseFailure expected(String expected) {
-        if (isEndOfText()) {
-            return error("Unexpected end of input");
+    private JsonValue readValue(JsonProjection projection) throws IOException {
+        if (projection.isWhole()) {
+            return readValue();
+        }
+        switch (scanner.current) {
+            case '[':
+                return readArray(projection);
+            case '{':
+                return readObject(projection);
+            default:
+                return readValue();
         }
-        return error("Expected " + expected);
     }
 
-    private ParseFailure error(String message) {
-        int absIndex = bufferOffset + index;
-        int column   = absIndex - lineOffset;
-        int offset   = isEndOfText() ? absIndex : absIndex - 1;
-        return new ParseFailure(message, offset, line, column - 1);
+    private JsonValue readValue() throws IOException {
+        switch (scanner.current) {
+            case 'n':
+                scanner.readNull();
+                return jNull();
+            case 't':
+                scanner.readTrue();
+                return jBool(true);
+            case 'f':
+                scanner.readFalse();
+                return jBool(false);
+            case '"':
+                return jString(scanner.readStringInternal());
+            case '[':
+                return readArray();
+            case '{':
+                return readObject();
+            case '-':
+            case '0':
+            case '1':
+            case '2':
+            case '3':
+            case '4':
+            case '5':
+            case '6':
+            case '7':
+            case '8':
+            case '9':
+                return jNum(scanner.readNumber());
+            default:
+                throw scanner.expected("value");
+        }
     }
 
-    private boolean isWhiteSpace() {
-        return current == ' ' || current == '\t' || current == '\n' || current == '\r';
+    /**
+     * Reads a chunk of the elements of an array, separated by commas, up to the end of the input.
+     */
+    private JsonValue[] readElements() throws IOException {
+        scanner.read();
+        do {
+            scanner.skipWhiteSpace();
+            push(null, readValue());
+            scanner.skipWhiteSpace();
+        } while (scanner.readChar(','));
+        if (!scanner.isEndOfText()) {
+            throw scanner.error("Unexpected character");
+        }
+        return Arrays.copyOf(elements, top);
     }
 
-    private boolean isDigit() {
-        return current >= '0' && current <= '9';
+    private JsonArray readArray() throws IOException {
+        scanner.read();
+        scanner.skipWhiteSpace();
+        if (scanner.readChar(']')) {
+            return JsonArray.empty;
+        }
+        int start = top;
+        do {
+            scanner.skipWhiteSpace();
+            push(null, readValue());
+            scanner.skipWhiteSpace();
+        } while (scanner.readChar(','));
+        if (!scanner.readChar(']')) {
+            throw scanner.expected("',' or ']'");
+        }
+        JsonArray array = JsonArray.copyOf(elements, start, top);
+        top = start;
+        return array;
+    }
+
+    /**
+     * Reads an array that a projection goes through, projecting each of the elements
+     */
+    private JsonArray readArray(JsonProjection projection) throws IOException {
+        scanner.read();
+        scanner.skipWhiteSpace();
+        if (scanner.readChar(']')) {
+            return JsonArray.empty;
+        }
+        int start = top;
+        do {
+            scanner.skipWhiteSpace();
+            push(null, readValue(projection));
+            scanner.skipWhiteSpace();
+        } while (scanner.readChar(','));
+        if (!scanner.readChar(']')) {
+            throw scanner.expected("',' or ']'");
+        }
+        JsonArray array = JsonArray.copyOf(elements, start, top);
+        top = start;
+        return array;
     }
 
-    private boolean isHexDigit() {
-        return current >= '0' && current <= '9'
-          || current >= 'a' && current <= 'f'
-          || current >= 'A' && current <= 'F';
+    private void push(String name, JsonValue value) {
+        if (top == elements.length) {
+            names = Arrays.copyOf(names, top * 2);
+            elements = Arrays.copyOf(elements, top * 2);
+        }
+        names[top] = name;
+        elements[top++] = value;
     }
 
-    private boolean isEndOfText() {
-        return current == -1;
+    private JsonObject readObject() throws IOException {
+        scanner.read();
+        scanner.skipWhiteSpace();
+        if (scanner.readChar('}')) {
+            return JsonObject.empty;
+        }
+        int start = top;
+        do {
+            scanner.skipWhiteSpace();
+            String name = scanner.readName();
+            scanner.skipWhiteSpace();
+            if (!scanner.readChar(':')) {
+                throw scanner.expected("':'");
+            }
+            scanner.skipWhiteSpace();
+            push(name, readValue());
+            scanner.skipWhiteSpace();
+        } while (scanner.readChar(','));
+        if (!scanner.readChar('}')) {
+            throw scanner.expected("',' or '}'");
+        }
+        JsonObject object = JsonObject.copyOf(names, elements, start, top);
+        top = start;
+        return object;
+    }
+
+    /**
+     * Reads the fields of an object that are in the projection, and skips the rest
+     */
+    private JsonObject readObject(JsonProjection projection) throws IOException {
+        scanner.read();
+        scanner.skipWhiteSpace();
+        if (scanner.readChar('}')) {
+            return JsonObject.empty;
+        }
+        int start = top;
+        do {
+            scanner.skipWhiteSpace();
+            String name = scanner.readName();
+            scanner.skipWhiteSpace();
+            if (!scanner.readChar(':')) {
+                throw scanner.expected("':'");
+            }
+            scanner.skipWhiteSpace();
+            JsonProjection field = projection.field(name);
+            if (field != null) {
+                push(name, readValue(field));
+            } else {
+                scanner.skipValue();
+            }
+            scanner.skipWhiteSpace();
+        } while (scanner.readChar(','));
+        if (!scanner.readChar('}')) {
+            throw scanner.expected("',' or '}'");
+        }
+        JsonObject object = JsonObject.copyOf(names, elements, start, top);
+        top = start;
+        return object;
     }
 
 }
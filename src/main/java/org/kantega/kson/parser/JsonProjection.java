@@ -0,0 +1,80 @@
+package org.kantega.kson.parser;
+
+import fj.data.List;
+import org.kantega.kson.lens.JsonValueLens;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The fields of a document that a projected parse keeps. A projection is a set of paths of field names, written
+ * the same way as for JsonLenses.path(), like "meta/id". The parser keeps the values at the ends of the paths
+ * whole, keeps the objects on the way with only the fields that are on a path, and skips everything else without
+ * building it. A path that meets an array goes on into each of its elements.
+ * <p>
+ * Looking up any of the paths in the sparse value gives the same result as in the whole value.
+ * <pre>
+ * JsonProjection projection = JsonProjection.paths("meta/id", "meta/type", "route");
+ * JsonResult&lt;JsonValue&gt; sparse = JsonParser.parse(bytes, projection);
+ * </pre>
+ */
+public final class JsonProjection {
+
+    static final JsonProjection whole = new JsonProjection(null);
+
+    private final Map<String, JsonProjection> fields;
+
+    private JsonProjection(Map<String, JsonProjection> fields) {
+        this.fields = fields;
+    }
+
+    public static JsonProjection paths(String... paths) {
+        JsonProjection projection = new JsonProjection(new HashMap<>());
+        for (String path : paths) {
+            projection = projection.add(List.arrayList(path.split("/")));
+        }
+        return projection;
+    }
+
+    /**
+     * The projection of the paths of the lenses. The lenses must be made with JsonLenses.path(), field() or
+     * select(), so that their paths are known.
+     *
+     * @throws IllegalArgumentException if the path of a lens is not known
+     */
+    public static JsonProjection lenses(JsonValueLens... lenses) {
+        JsonProjection projection = new JsonProjection(new HashMap<>());
+        for (JsonValueLens lens : lenses) {
+            projection = projection.add(lens.path().orSome(() -> {
+                throw new IllegalArgumentException("The path of the lens is not known");
+            }));
+        }
+        return projection;
+    }
+
+    /**
+     * The projection of the value of the field, or null if the field is not kept
+     */
+    JsonProjection field(String name) {
+        return fields.get(name);
+    }
+
+    /**
+     * True if the whole value is kept
+     */
+    boolean isWhole() {
+        return fields == null;
+    }
+
+    private JsonProjection add(List<String> path) {
+        if (path.isEmpty()) {
+            return whole;
+        }
+        if (fields == null) {
+            return this;
+        }
+        JsonProjection child = fields.get(path.head());
+        fields.put(path.head(), (child != null ? child : new JsonProjection(new HashMap<>())).add(path.tail()));
+        return this;
+    }
+}
@@ -0,0 +1,410 @@
+package org.kantega.kson.parser;
+
+import org.kantega.kson.json.JsonArray;
+import org.kantega.kson.json.JsonObject;
+import org.kantega.kson.json.JsonValue;
+import org.kantega.kson.util.Numbers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.kantega.kson.json.JsonValues.*;
+
+/**
+ * A pull reader that yields the json one token at a time, without building a tree. Only the
+ * nesting of the containers is kept, so documents of any size can be read in constant memory.
+ * <p>
+ * Syntax errors are thrown as ParseFailures, with the same messages as the ones JsonParser reports.
+ * A JsonReader is mutable and not thread safe.
+ * <pre>
+ * JsonReader reader = JsonReader.reader(in);
+ * while (reader.nextToken() != JsonToken.END_DOCUMENT) {
+ *     ...
+ * }
+ * </pre>
+ */
+public class JsonReader {
+
+    private static final byte ARRAY_FIRST  = 0;
+    private static final byte ARRAY_NEXT   = 1;
+    private static final byte OBJECT_FIRST = 2;
+    private static final byte OBJECT_NEXT  = 3;
+    private static final byte OBJECT_VALUE = 4;
+
+    private       JsonScanner scanner;
+    private       byte[]      states;
+    private       String[]    names;
+    private       int         depth;
+    private       JsonToken   token;
+    private       String      text;
+    private       String[]    fieldNames;
+    private       JsonValue[] elements;
+    private       int         top;
+
+    JsonReader(JsonScanner scanner) {
+        this.scanner = scanner;
+        this.states = new byte[16];
+        this.names = new String[16];
+        this.fieldNames = new String[16];
+        this.elements = new JsonValue[16];
+    }
+
+    /**
+     * Starts reading from the scanner, reusing the stacks of this reader
+     */
+    void reset(JsonScanner scanner) {
+        this.scanner = scanner;
+    }
+
+    /**
+     * Drops the scanner and the references to the values read, so that the reader can be reused. Stacks that
+     * have grown large are dropped too.
+     */
+    void clear() {
+        scanner = null;
+        depth = 0;
+        token = null;
+        text = null;
+        top = 0;
+        if (elements.length > Reusables.MAX_REUSED_STACK || states.length > Reusables.MAX_REUSED_STACK) {
+            this.states = new byte[16];
+            this.names = new String[16];
+            this.fieldNames = new String[16];
+            this.elements = new JsonValue[16];
+        } else {
+            Arrays.fill(names, null);
+            Arrays.fill(fieldNames, null);
+            Arrays.fill(elements, null);
+        }
+    }
+
+    public static JsonReader reader(String json) {
+        return new JsonReader(new CharScanner(json));
+    }
+
+    public static JsonReader reader(Reader json) {
+        return new JsonReader(new CharScanner(json));
+    }
+
+    public static JsonReader reader(byte[] json) {
+        return new JsonReader(new Utf8Scanner(json, 0, json.length));
+    }
+
+    public static JsonReader reader(ByteBuffer json) {
+        return new JsonReader(JsonScanner.scanner(json));
+    }
+
+    public static JsonReader reader(InputStream json) {
+        return new JsonReader(new Utf8Scanner(json));
+    }
+
+    /**
+     * Advances to the next token. When the top level value is read, the rest of the input is checked for
+     * trailing characters, and END_DOCUMENT is returned from then on.
+     *
+     * @return The next token
+     * @throws IOException  if the underlying input fails
+     * @throws ParseFailure if the input is not valid json
+     */
+    public JsonToken nextToken() throws IOException {
+        if (token == null) {
+            scanner.read();
+            scanner.skipWhiteSpace();
+            return token = readValueToken();
+        }
+        scanner.skipWhiteSpace();
+        if (depth == 0) {
+            if (!scanner.isEndOfText()) {
+                throw scanner.error("Unexpected character");
+            }
+            return token = JsonToken.END_DOCUMENT;
+        }
+        switch (states[depth - 1]) {
+            case ARRAY_FIRST:
+                if (scanner.readChar(']')) {
+                    depth--;
+                    return token = JsonToken.END_ARRAY;
+                }
+                states[depth - 1] = ARRAY_NEXT;
+                return token = readValueToken();
+            case ARRAY_NEXT:
+                if (scanner.readChar(',')) {
+                    scanner.skipWhiteSpace();
+                    return token = readValueToken();
+                }
+                if (!scanner.readChar(']')) {
+                    throw scanner.expected("',' or ']'");
+                }
+                depth--;
+                return token = JsonToken.END_ARRAY;
+            case OBJECT_FIRST:
+                if (scanner.readChar('}')) {
+                    depth--;
+                    return token = JsonToken.END_OBJECT;
+                }
+                return token = readFieldName();
+            case OBJECT_NEXT:
+                if (scanner.readChar(',')) {
+                    scanner.skipWhiteSpace();
+                    return token = readFieldName();
+                }
+                if (!scanner.readChar('}')) {
+                    throw scanner.expected("',' or '}'");
+                }
+                depth--;
+                return token = JsonToken.END_OBJECT;
+            default:
+                states[depth - 1] = OBJECT_NEXT;
+                return token = readValueToken();
+        }
+    }
+
+    /**
+     * Like nextToken(), but if the token runs past the bytes fed to the scanner so far, the reader and the scanner
+     * are put back the way they were, and null is returned. The token is read again when more bytes have arrived.
+     */
+    JsonToken nextToken(FeedScanner feed) throws IOException {
+        int       depth = this.depth;
+        JsonToken token = this.token;
+        String    text  = this.text;
+        byte      state = depth > 0 ? states[depth - 1] : 0;
+        String    name  = depth > 0 ? names[depth - 1] : null;
+        feed.mark();
+        try {
+            return nextToken();
+        } catch (FeedScanner.NeedInput needInput) {
+            this.depth = depth;
+            this.token = token;
+            this.text = text;
+            if (depth > 0) {
+                states[depth - 1] = state;
+                names[depth - 1] = name;
+            }
+            feed.rewind();
+            return null;
+        }
+    }
+
+    /**
+     * The token the reader is positioned at, or null if nextToken() has not been called yet.
+     */
+    public JsonToken currentToken() {
+        return token;
+    }
+
+    /**
+     * The name of the field the current token belongs to, or null if the current token is not inside an object.
+     */
+    public String currentName() {
+        int level = token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY ? depth - 2 : depth - 1;
+        return level >= 0 && states[level] >= OBJECT_FIRST ? names[level] : null;
+    }
+
+    /**
+     * The text of the current STRING, NUMBER or FIELD_NAME token
+     */
+    public String stringValue() {
+        switch (token) {
+            case STRING:
+            case NUMBER:
+                return text;
+            case FIELD_NAME:
+                return names[depth - 1];
+            default:
+                throw notA("string");
+        }
+    }
+
+    public BigDecimal numberValue() {
+        return new BigDecimal(numberText());
+    }
+
+    /**
+     * The value of the current NUMBER token, converted the same way as BigDecimal.longValue() does.
+     */
+    public long longValue() {
+        return Numbers.longValue(numberText());
+    }
+
+    /**
+     * The value of the current NUMBER token, converted the same way as BigDecimal.intValue() does.
+     */
+    public int intValue() {
+        return Numbers.intValue(numberText());
+    }
+
+    /**
+     * The value of the current NUMBER token, converted the same way as BigDecimal.doubleValue() does.
+     */
+    public double doubleValue() {
+        return Numbers.doubleValue(numberText());
+    }
+
+    public boolean booleanValue() {
+        if (token != JsonToken.TRUE && token != JsonToken.FALSE) {
+            throw notA("boolean");
+        }
+        return token == JsonToken.TRUE;
+    }
+
+    /**
+     * If the reader is positioned at the start of an object or an array, advances to the matching end token.
+     * Does nothing otherwise. The contents are skipped the same way as by skipValue().
+     */
+    public void skipChildren() throws IOException {
+        if (token == JsonToken.START_OBJECT) {
+            scanner.skipFields();
+            depth--;
+            token = JsonToken.END_OBJECT;
+        } else if (token == JsonToken.START_ARRAY) {
+            scanner.skipElements();
+            depth--;
+            token = JsonToken.END_ARRAY;
+        }
+    }
+
+    /**
+     * Skips a value without building it, and without capturing any of its strings. Only the nesting is tracked,
+     * but the value is checked the same way as when it is read.
+     * <p>
+     * At a FIELD_NAME, the value of the field is skipped, and the next token is the next field name or the end of
+     * the object. At the start of an object or an array, the rest of it is skipped, and the reader is left at its
+     * end token. At any other token the value has already been read, and nothing is done.
+     */
+    public void skipValue() throws IOException {
+        if (token == JsonToken.FIELD_NAME && states[depth - 1] == OBJECT_VALUE) {
+            scanner.skipWhiteSpace();
+            scanner.skipValue();
+            states[depth - 1] = OBJECT_NEXT;
+        } else {
+            skipChildren();
+        }
+    }
+
+    /**
+     * Reads the value the reader is positioned at into a JsonValue. The reader is left at the last token
+     * of the value, i.e. the matching end token for objects and arrays.
+     */
+    public JsonValue readValue() throws IOException {
+        switch (token) {
+            case NULL:
+                return jNull();
+            case TRUE:
+                return jBool(true);
+            case FALSE:
+                return jBool(false);
+            case STRING:
+                return jString(text);
+            case NUMBER:
+                return jNum(text);
+            case START_ARRAY:
+                int start = top;
+                while (nextToken() != JsonToken.END_ARRAY) {
+                    push(null, readValue());
+                }
+                JsonArray array = JsonArray.copyOf(elements, start, top);
+                top = start;
+                return array;
+            case START_OBJECT:
+                int first = top;
+                while (nextToken() != JsonToken.END_OBJECT) {
+                    String name = names[depth - 1];
+                    nextToken();
+                    push(name, readValue());
+                }
+                JsonObject object = JsonObject.copyOf(fieldNames, elements, first, top);
+                top = first;
+                return object;
+            default:
+                throw notA("value");
+        }
+    }
+
+    private void push(String name, JsonValue value) {
+        if (top == elements.length) {
+            fieldNames = Arrays.copyOf(fieldNames, top * 2);
+            elements = Arrays.copyOf(elements, top * 2);
+        }
+        fieldNames[top] = name;
+        elements[top++] = value;
+    }
+
+    private JsonToken readFieldName() throws IOException {
+        names[depth - 1] = scanner.readName();
+        scanner.skipWhiteSpace();
+        if (!scanner.readChar(':')) {
+            throw scanner.expected("':'");
+        }
+        states[depth - 1] = OBJECT_VALUE;
+        return JsonToken.FIELD_NAME;
+    }
+
+    private JsonToken readValueToken() throws IOException {
+        switch (scanner.current) {
+            case 'n':
+                scanner.readNull();
+                return JsonToken.NULL;
+            case 't':
+                scanner.readTrue();
+                return JsonToken.TRUE;
+            case 'f':
+                scanner.readFalse();
+                return JsonToken.FALSE;
+            case '"':
+                text = scanner.readStringInternal();
+                return JsonToken.STRING;
+            case '[':
+                scanner.read();
+                push(ARRAY_FIRST);
+                return JsonToken.START_ARRAY;
+            case '{':
+                scanner.read();
+                push(OBJECT_FIRST);
+                return JsonToken.START_OBJECT;
+            case '-':
+            case '0':
+            case '1':
+            case '2':
+            case '3':
+            case '4':
+            case '5':
+            case '6':
+            case '7':
+            case '8':
+            case '9':
+                text = scanner.readNumber();
+                return JsonToken.NUMBER;
+            default:
+                throw scanner.expected("value");
+        }
+    }
+
+    private void push(byte state) {
+        if (depth == states.length) {
+            byte[] grownStates = new byte[depth * 2];
+            System.arraycopy(states, 0, grownStates, 0, depth);
+            states = grownStates;
+            String[] grownNames = new String[depth * 2];
+            System.arraycopy(names, 0, grownNames, 0, depth);
+            names = grownNames;
+        }
+        states[depth] = state;
+        names[depth] = null;
+        depth++;
+    }
+
+    private String numberText() {
+        if (token != JsonToken.NUMBER) {
+            throw notA("number");
+        }
+        return text;
+    }
+
+    private IllegalStateException notA(String type) {
+        return new IllegalStateException("The current token " + token + " is not a " + type);
+    }
+}
@@ -0,0 +1,461 @@
+package org.kantega.kson.parser;
+
+import org.kantega.kson.util.Numbers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The lexical part of the parser. Subclasses supply the input, either as chars or as utf-8 bytes,
+ * by implementing read() and the capture methods. All the structural characters of json are
+ * ascii, so the scanning logic here works the same way on both representations.
+ */
+abstract class JsonScanner {
+
+    static final int MAX_REUSED_CAPTURE = 8192;
+
+    int           current;
+    int           line;
+    long          lineOffset;
+    StringBuilder captureBuffer;
+    FieldNameCache names;
+
+    JsonScanner() {
+        line = 1;
+    }
+
+    /**
+     * Scans the remaining bytes of the buffer in place, without moving its position.
+     */
+    static JsonScanner scanner(ByteBuffer bytes) {
+        return bytes.hasArray() ?
+               new Utf8Scanner(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining()) :
+               new ByteBufferScanner(bytes);
+    }
+
+    /**
+     * Makes the scanner look up field names in the cache. A null cache turns the lookup off.
+     */
+    JsonScanner withNames(FieldNameCache names) {
+        this.names = names;
+        return this;
+    }
+
+    /**
+     * Puts the scanner back to the start of a new input. A capture buffer that has grown large is dropped,
+     * so that a scanner that is kept for reuse does not hold on to it.
+     */
+    void resetState() {
+        current = 0;
+        line = 1;
+        lineOffset = 0;
+        names = null;
+        if (captureBuffer != null && captureBuffer.capacity() > MAX_REUSED_CAPTURE) {
+            captureBuffer = null;
+        } else if (captureBuffer != null) {
+            captureBuffer.setLength(0);
+        }
+    }
+
+    /**
+     * Advances to the next character (or byte), updating current, or sets current to -1 at the end of the input.
+     */
+    abstract void read() throws IOException;
+
+    /**
+     * Starts capturing input at the current position
+     */
+    abstract void startCapture();
+
+    /**
+     * Moves the captured input into the captureBuffer, so that escaped characters can be appended.
+     */
+    abstract void pauseCapture();
+
+    /**
+     * Ends the capture, and returns everything captured since startCapture()
+     */
+    abstract String endCapture();
+
+    /**
+     * Ends the capture of a name, and looks it up in the names cache. If the name was not captured in one piece
+     * from the buffer, it is returned from endCapture() instead.
+     */
+    abstract String endCaptureName(int hash);
+
+    /**
+     * The absolute position of the next character in the input.
+     */
+    abstract long position();
+
+    String readName() throws IOException {
+        if (current != '"') {
+            throw expected("name");
+        }
+        return names == null ? readStringInternal() : readCachedName();
+    }
+
+    /**
+     * Reads a name like readStringInternal() does, while computing its String hash, so that short ascii names
+     * can be looked up in the cache straight from the input.
+     */
+    private String readCachedName() throws IOException {
+        read();
+        startCapture();
+        int     hash      = 0;
+        int     length    = 0;
+        boolean cacheable = true;
+        while (current != '"') {
+            if (current == '\\') {
+                pauseCapture();
+                readEscape();
+                startCapture();
+                cacheable = false;
+            } else if (current < 0x20) {
+                throw expected("valid string character");
+            } else {
+                hash = 31 * hash + current;
+                cacheable &= current < 0x80;
+                length++;
+                read();
+            }
+        }
+        String name = cacheable && length <= FieldNameCache.MAX_NAME_LENGTH ? endCaptureName(hash) : endCapture();
+        read();
+        return name;
+    }
+
+    void readNull() throws IOException {
+        read();
+        readRequiredChar('u');
+        readRequiredChar('l');
+        readRequiredChar('l');
+    }
+
+    void readTrue() throws IOException {
+        read();
+        readRequiredChar('r');
+        readRequiredChar('u');
+        readRequiredChar('e');
+    }
+
+    void readFalse() throws IOException {
+        read();
+        readRequiredChar('a');
+        readRequiredChar('l');
+        readRequiredChar('s');
+        readRequiredChar('e');
+    }
+
+    void readRequiredChar(char ch) throws IOException {
+        if (!readChar(ch)) {
+            throw expected("'" + ch + "'");
+        }
+    }
+
+    String readStringInternal() throws IOException {
+        read();
+        startCapture();
+        while (current != '"') {
+            if (current == '\\') {
+                pauseCapture();
+                readEscape();
+                startCapture();
+            } else if (current < 0x20) {
+                throw expected("valid string character");
+            } else {
+                readStringChars();
+            }
+        }
+        String string = endCapture();
+        read();
+        return string;
+    }
+
+    private void readEscape() throws IOException {
+        captureBuffer.append(readEscapedChar());
+    }
+
+    /**
+     * Reads an escape sequence, starting at the backslash, and gives the char it stands for
+     */
+    private char readEscapedChar() throws IOException {
+        read();
+        char escaped;
+        switch (current) {
+            case '"':
+            case '/':
+            case '\\':
+                escaped = (char) current;
+                break;
+            case 'b':
+                escaped = '\b';
+                break;
+            case 'f':
+                escaped = '\f';
+                break;
+            case 'n':
+                escaped = '\n';
+                break;
+            case 'r':
+                escaped = '\r';
+                break;
+            case 't':
+                escaped = '\t';
+                break;
+            case 'u':
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    read();
+                    if (!isHexDigit()) {
+                        throw expected("hexadecimal digit");
+                    }
+                    code = code << 4 | Character.digit(current, 16);
+                }
+                escaped = (char) code;
+                break;
+            default:
+                throw expected("valid escape sequence");
+        }
+        read();
+        return escaped;
+    }
+
+    /**
+     * Reads past a value without building it. Nothing is captured, but the value is checked, and fails with the
+     * same messages, as when it is read.
+     */
+    void skipValue() throws IOException {
+        switch (current) {
+            case 'n':
+                readNull();
+                return;
+            case 't':
+                readTrue();
+                return;
+            case 'f':
+                readFalse();
+                return;
+            case '"':
+                skipString();
+                return;
+            case '[':
+                skipArray();
+                return;
+            case '{':
+                skipObject();
+                return;
+            case '-':
+            case '0':
+            case '1':
+            case '2':
+            case '3':
+            case '4':
+            case '5':
+            case '6':
+            case '7':
+            case '8':
+            case '9':
+                scanNumber();
+                return;
+            default:
+                throw expected("value");
+        }
+    }
+
+    private void skipString() throws IOException {
+        read();
+        while (current != '"') {
+            if (current == '\\') {
+                readEscapedChar();
+            } else if (current < 0x20) {
+                throw expected("valid string character");
+            } else {
+                readStringChars();
+            }
+        }
+        read();
+    }
+
+    private void skipArray() throws IOException {
+        read();
+        skipElements();
+    }
+
+    /**
+     * Skips the rest of an array whose opening bracket has been read
+     */
+    void skipElements() throws IOException {
+        skipWhiteSpace();
+        if (readChar(']')) {
+            return;
+        }
+        do {
+            skipWhiteSpace();
+            skipValue();
+            skipWhiteSpace();
+        } while (readChar(','));
+        if (!readChar(']')) {
+            throw expected("',' or ']'");
+        }
+    }
+
+    private void skipObject() throws IOException {
+        read();
+        skipFields();
+    }
+
+    /**
+     * Skips the rest of an object whose opening brace has been read
+     */
+    void skipFields() throws IOException {
+        skipWhiteSpace();
+        if (readChar('}')) {
+            return;
+        }
+        do {
+            skipWhiteSpace();
+            if (current != '"') {
+                throw expected("name");
+            }
+            skipString();
+            skipWhiteSpace();
+            if (!readChar(':')) {
+                throw expected("':'");
+            }
+            skipWhiteSpace();
+            skipValue();
+            skipWhiteSpace();
+        } while (readChar(','));
+        if (!readChar('}')) {
+            throw expected("',' or '}'");
+        }
+    }
+
+    String readNumber() throws IOException {
+        startCapture();
+        scanNumber();
+        return endCapture();
+    }
+
+    private void scanNumber() throws IOException {
+        readChar('-');
+        int firstDigit = current;
+        if (!readDigit()) {
+            throw expected("digit");
+        }
+        if (firstDigit != '0') {
+            readDigits();
+        }
+        long fractionDigits = readFraction();
+        long exponent       = readExponent();
+        if (!Numbers.hasBigDecimal(fractionDigits, exponent)) {
+            throw error("Number out of range");
+        }
+    }
+
+    /**
+     * Reads the fraction, if any, and gives the number of digits in it
+     */
+    private long readFraction() throws IOException {
+        if (!readChar('.')) {
+            return 0;
+        }
+        long start = position();
+        if (!readDigit()) {
+            throw expected("digit");
+        }
+        readDigits();
+        return position() - start;
+    }
+
+    /**
+     * Reads the exponent, if any, and gives its value, capped by Numbers.exponent()
+     */
+    private long readExponent() throws IOException {
+        if (!readChar('e') && !readChar('E')) {
+            return 0;
+        }
+        boolean negative = false;
+        if (!readChar('+')) {
+            negative = readChar('-');
+        }
+        if (!isDigit()) {
+            throw expected("digit");
+        }
+        long exponent = 0;
+        while (isDigit()) {
+            exponent = Numbers.exponent(exponent, current - '0');
+            read();
+        }
+        return negative ? -exponent : exponent;
+    }
+
+    boolean readChar(char ch) throws IOException {
+        if (current != ch) {
+            return false;
+        }
+        read();
+        return true;
+    }
+
+    private boolean readDigit() throws IOException {
+        if (!isDigit()) {
+            return false;
+        }
+        read();
+        return true;
+    }
+
+    /**
+     * Reads past the current char, which is a plain string char, and the plain chars that follow it. Scanners
+     * that can see the bytes ahead skip the run in bulk.
+     */
+    void readStringChars() throws IOException {
+        read();
+    }
+
+    void readDigits() throws IOException {
+        while (readDigit()) {
+        }
+    }
+
+    void skipWhiteSpace() throws IOException {
+        while (isWhiteSpace()) {
+            read();
+        }
+    }
+
+    ParseFailure expected(String expected) {
+        if (isEndOfText()) {
+            return error("Unexpected end of input");
+        }
+        return error("Expected " + expected);
+    }
+
+    ParseFailure error(String message) {
+        long absIndex = position();
+        long column   = absIndex - lineOffset;
+        long offset   = isEndOfText() ? absIndex : absIndex - 1;
+        return new ParseFailure(message, offset, line, column - 1);
+    }
+
+    boolean isWhiteSpace() {
+        return current == ' ' || current == '\t' || current == '\n' || current == '\r';
+    }
+
+    private boolean isDigit() {
+        return current >= '0' && current <= '9';
+    }
+
+    private boolean isHexDigit() {
+        return current >= '0' && current <= '9'
+          || current >= 'a' && current <= 'f'
+          || current >= 'A' && current <= 'F';
+    }
+
+    boolean isEndOfText() {
+        return current == -1;
+    }
+
+}
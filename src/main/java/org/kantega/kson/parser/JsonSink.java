@@ -0,0 +1,50 @@
+package org.kantega.kson.parser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Where JsonWriter writes its output, as chars (CharSink) or as utf-8 bytes (Utf8Sink).
+ */
+abstract class JsonSink {
+
+    /**
+     * Writes a char that is known to be ascii
+     */
+    abstract void write(char c) throws IOException;
+
+    abstract void write(Literal literal) throws IOException;
+
+    /**
+     * Writes the chars of the string between from and to
+     */
+    abstract void write(String string, int from, int to) throws IOException;
+
+    /**
+     * Hands the buffered output to where it goes
+     */
+    abstract void flush() throws IOException;
+
+    void write(String string) throws IOException {
+        write(string, 0, string.length());
+    }
+
+    void spaces(int n) throws IOException {
+        for (int i = 0; i < n; i++) {
+            write(' ');
+        }
+    }
+
+    /**
+     * A string the writer often writes, prepared as both chars and utf-8 bytes
+     */
+    static final class Literal {
+        final char[] chars;
+        final byte[] bytes;
+
+        Literal(String value) {
+            this.chars = value.toCharArray();
+            this.bytes = value.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
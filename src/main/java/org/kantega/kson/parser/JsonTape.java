@@ -0,0 +1,593 @@
+package org.kantega.kson.parser;
+
+import org.kantega.kson.JsonResult;
+import org.kantega.kson.json.JsonArray;
+import org.kantega.kson.json.JsonObject;
+import org.kantega.kson.json.JsonValue;
+import org.kantega.kson.util.Numbers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.kantega.kson.json.JsonValues.*;
+
+/**
+ * Utf-8 encoded json parsed into a tape: one long per value, holding the kind of the value and where it is in the
+ * input, with the containers pointing past their end. Nothing is decoded while parsing, so looking up a few values
+ * in a large document is much cheaper than building the whole JsonValue tree. Values are decoded when they are
+ * converted with toJsonValue().
+ * <p>
+ * The parsing is done in two stages. The first finds the quotes and the structural characters outside of strings,
+ * eight bytes at a time, and validates the contents of the strings. The second walks the input, jumping over the
+ * strings, validates the rest and writes the tape. The input must not be changed while the tape is in use.
+ * <pre>
+ * JsonResult&lt;JsonValue&gt; name = JsonTape.parse(bytes).bind(tape -&gt; tape.index(1000)).bind(tape -&gt; tape.field("name")).map(JsonTape::toJsonValue);
+ * </pre>
+ */
+public final class JsonTape {
+
+    private static final int OBJECT     = '{';
+    private static final int OBJECT_END = '}';
+    private static final int ARRAY      = '[';
+    private static final int ARRAY_END  = ']';
+    private static final int STRING     = '"';
+    private static final int NUMBER     = 'd';
+    private static final int TRUE       = 't';
+    private static final int FALSE      = 'f';
+    private static final int NULL       = 'n';
+
+    private static final long PAYLOAD = (1L << 56) - 1;
+
+    private static final long ONES       = 0x0101010101010101L;
+    private static final long LOWS       = 0x7F7F7F7F7F7F7F7FL;
+    private static final long CONTROLS   = 0x6060606060606060L;
+    private static final long QUOTES     = ONES * '"';
+    private static final long BACKSLASHS = ONES * '\\';
+
+    private static final long CASES      = ONES * 0x20;
+    private static final long OPENS      = ONES * '{';
+    private static final long CLOSES     = ONES * '}';
+    private static final long COLONS     = ONES * ':';
+    private static final long COMMAS     = ONES * ',';
+
+    private final byte[] bytes;
+    private final int    to;
+    private final long[] tape;
+    private final int    node;
+
+    private JsonTape(byte[] bytes, int to, long[] tape, int node) {
+        this.bytes = bytes;
+        this.to = to;
+        this.tape = tape;
+        this.node = node;
+    }
+
+    public static JsonResult<JsonTape> parse(byte[] bytes) {
+        return parse(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Parses the utf-8 encoded json in the given region of the array. Failures are the same as JsonParser gives.
+     */
+    public static JsonResult<JsonTape> parse(byte[] bytes, int offset, int length) {
+        int[]  structurals = structurals(bytes, offset, offset + length);
+        long[] tape        = structurals == null ? null : new Builder(bytes, offset, offset + length, structurals).build();
+        if (tape == null) {
+            return JsonParser.parse(bytes, offset, length).bind(value -> JsonResult.fail("Failed to parse resource"));
+        }
+        return JsonResult.success(new JsonTape(bytes, offset + length, tape, 0));
+    }
+
+    /**
+     * The value of the field with the given name, if this is an object
+     */
+    public JsonResult<JsonTape> field(String name) {
+        if (kind(node) != OBJECT) {
+            return JsonResult.fail("Trying to read field " + name + ", but this is not an object");
+        }
+        byte[] nameBytes = name.getBytes(UTF_8);
+        int    found     = -1;
+        for (int i = node + 1; kind(i) != OBJECT_END; i = next(i + 1)) {
+            if (nameEquals(offset(i), nameBytes, name)) {
+                found = i + 1;
+            }
+        }
+        return found == -1 ? JsonResult.fail("Field " + name + " not found") : JsonResult.success(new JsonTape(bytes, to, tape, found));
+    }
+
+    /**
+     * The value at index i, if this is an array
+     */
+    public JsonResult<JsonTape> index(int i) {
+        if (kind(node) != ARRAY) {
+            return JsonResult.fail("Not an array");
+        }
+        return JsonResult.tried(() -> new JsonTape(bytes, to, tape, element(i)));
+    }
+
+    /**
+     * Decodes the value and everything in it
+     */
+    public JsonValue toJsonValue() {
+        return value(node);
+    }
+
+    @Override
+    public String toString() {
+        return "JsonTape{" + toJsonValue() + '}';
+    }
+
+    private int element(int i) {
+        int element = node + 1;
+        int count   = 0;
+        for (; kind(element) != ARRAY_END && count < i; count++) {
+            element = next(element);
+        }
+        if (i < 0 || kind(element) == ARRAY_END) {
+            while (kind(element) != ARRAY_END) {
+                element = next(element);
+                count++;
+            }
+            throw new ArrayIndexOutOfBoundsException("Index " + i + " out of bounds for length " + count);
+        }
+        return element;
+    }
+
+    private int kind(int i) {
+        return (int) (tape[i] >>> 56);
+    }
+
+    private int offset(int i) {
+        return (int) (tape[i] & PAYLOAD);
+    }
+
+    /**
+     * The tape index of the value after the one at i
+     */
+    private int next(int i) {
+        int kind = kind(i);
+        return kind == OBJECT || kind == ARRAY ? offset(i) : i + 1;
+    }
+
+    private JsonValue value(int i) {
+        switch (kind(i)) {
+            case OBJECT:
+                int         fields = 0;
+                String[]    names  = new String[8];
+                JsonValue[] values = new JsonValue[8];
+                for (int j = i + 1; kind(j) != OBJECT_END; j = next(j + 1)) {
+                    if (fields == names.length) {
+                        names = Arrays.copyOf(names, fields * 2);
+                        values = Arrays.copyOf(values, fields * 2);
+                    }
+                    names[fields] = string(offset(j));
+                    values[fields++] = value(j + 1);
+                }
+                return JsonObject.copyOf(names, values, 0, fields);
+            case ARRAY:
+                int         length   = 0;
+                JsonValue[] elements = new JsonValue[8];
+                for (int j = i + 1; kind(j) != ARRAY_END; j = next(j)) {
+                    if (length == elements.length) {
+                        elements = Arrays.copyOf(elements, length * 2);
+                    }
+                    elements[length++] = value(j);
+                }
+                return JsonArray.copyOf(elements, 0, length);
+            case STRING:
+                return jString(string(offset(i)));
+            case NUMBER:
+                int start = offset(i);
+                int end   = start;
+                while (end < to && isNumberChar(bytes[end])) {
+                    end++;
+                }
+                return jNum(new String(bytes, start, end - start, ISO_8859_1));
+            case TRUE:
+                return jBool(true);
+            case FALSE:
+                return jBool(false);
+            default:
+                return jNull();
+        }
+    }
+
+    /**
+     * Decodes the string that starts with the quote at the given offset. Strings without escapes are decoded
+     * straight from the input.
+     */
+    private String string(int quote) {
+        int end = ByteScans.scans.stringEnd(bytes, quote + 1, to);
+        if (bytes[end] == '"') {
+            return new String(bytes, quote + 1, end - quote - 1, UTF_8);
+        }
+        try {
+            Utf8Scanner scanner = new Utf8Scanner(bytes, quote, to - quote);
+            scanner.read();
+            return scanner.readStringInternal();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read string at " + quote, e);
+        }
+    }
+
+    /**
+     * Compares the key that starts with the quote at the given offset to the name. Keys without escapes are compared
+     * byte by byte up to their closing quote, found the same way as string() finds it, the others are decoded.
+     */
+    private boolean nameEquals(int quote, byte[] nameBytes, String name) {
+        int end = ByteScans.scans.stringEnd(bytes, quote + 1, to);
+        if (bytes[end] != '"') {
+            return string(quote).equals(name);
+        }
+        if (end - quote - 1 != nameBytes.length) {
+            return false;
+        }
+        for (int k = 0; k < nameBytes.length; k++) {
+            if (bytes[quote + 1 + k] != nameBytes[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNumberChar(byte b) {
+        return b >= '0' && b <= '9' || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E';
+    }
+
+    /**
+     * Stage one: the positions of all quotes and structural characters outside of strings, in order. The bytes are
+     * read eight at a time, and only the words that hold a quote, a backslash, a control character or a structural
+     * character are looked at byte by byte. Setting the 0x20 bit turns '[' and ']' into '{' and '}', so the brackets
+     * take two comparisons instead of four. Returns null if a string has an invalid character or escape, or is not
+     * closed.
+     */
+    static int[] structurals(byte[] bytes, int from, int to) {
+        ByteBuffer words   = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        Indexer    indexer = new Indexer(bytes, to, Math.max(16, (to - from) / 8));
+        int        i       = from;
+        for (; i <= to - 8; i += 8) {
+            long word = words.getLong(i);
+            long lower = word | CASES;
+            long mask  =
+              equalBytes(word, QUOTES) | equalBytes(word, BACKSLASHS) | controlBytes(word) |
+                equalBytes(lower, OPENS) | equalBytes(lower, CLOSES) | equalBytes(word, COLONS) | equalBytes(word, COMMAS);
+            for (; mask != 0; mask &= mask - 1) {
+                if (!indexer.visit(i + (Long.numberOfTrailingZeros(mask) >>> 3))) {
+                    return null;
+                }
+            }
+        }
+        for (; i < to; i++) {
+            if (!indexer.visit(i)) {
+                return null;
+            }
+        }
+        return indexer.inString ? null : Arrays.copyOf(indexer.positions, indexer.count);
+    }
+
+    private static final class Indexer {
+
+        private final byte[]  bytes;
+        private final int     to;
+        private       int[]   positions;
+        private       int     count;
+        private       boolean inString;
+        private       int     escapeEnd;
+
+        Indexer(byte[] bytes, int to, int capacity) {
+            this.bytes = bytes;
+            this.to = to;
+            this.positions = new int[capacity];
+        }
+
+        /**
+         * Records the byte at p if it is a quote, or a structural character outside of a string. Returns false
+         * if it makes the string it is in invalid.
+         */
+        boolean visit(int p) {
+            if (p < escapeEnd) {
+                return true;
+            }
+            byte b = bytes[p];
+            if (b == '"') {
+                add(p);
+                inString = !inString;
+            } else if (!inString) {
+                if (isStructural(b)) {
+                    add(p);
+                }
+            } else if (b == '\\') {
+                escapeEnd = escapeEnd(bytes, p, to);
+                return escapeEnd >= 0;
+            } else if (b >= 0 && b < 0x20) {
+                return false;
+            }
+            return true;
+        }
+
+        private void add(int p) {
+            if (count == positions.length) {
+                positions = Arrays.copyOf(positions, count * 2);
+            }
+            positions[count++] = p;
+        }
+    }
+
+    /**
+     * The position after the escape that starts with the backslash at p, or -1 if it is not a valid escape
+     */
+    private static int escapeEnd(byte[] bytes, int p, int to) {
+        if (p + 1 >= to) {
+            return -1;
+        }
+        switch (bytes[p + 1]) {
+            case '"':
+            case '/':
+            case '\\':
+            case 'b':
+            case 'f':
+            case 'n':
+            case 'r':
+            case 't':
+                return p + 2;
+            case 'u':
+                if (p + 6 > to) {
+                    return -1;
+                }
+                for (int i = p + 2; i < p + 6; i++) {
+                    byte b = bytes[i];
+                    if (!(b >= '0' && b <= '9' || b >= 'a' && b <= 'f' || b >= 'A' && b <= 'F')) {
+                        return -1;
+                    }
+                }
+                return p + 6;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * 0x80 in every byte of the word that is the same as the byte repeated in pattern, 0 in the others
+     */
+    private static long equalBytes(long word, long pattern) {
+        long t = word ^ pattern;
+        return ~(((t & LOWS) + LOWS) | t | LOWS);
+    }
+
+    /**
+     * 0x80 in every byte of the word that is below 0x20, 0 in the others
+     */
+    private static long controlBytes(long word) {
+        return ~(((word & LOWS) + CONTROLS) | word | LOWS);
+    }
+
+    private static boolean isStructural(byte b) {
+        return b == '{' || b == '}' || b == '[' || b == ']' || b == ':' || b == ',';
+    }
+
+    /**
+     * Stage two: walks the input from structural to structural, checking the whitespace, numbers and literals in
+     * between, and writes the tape. Strings are skipped by going straight to their closing quote.
+     */
+    private static final class Builder {
+
+        private final byte[] bytes;
+        private final int    from;
+        private final int    to;
+        private final int[]  structurals;
+        private       int    s;
+        private       long[] tape;
+        private       int    size;
+        private       int[]  open;
+        private       int    depth;
+
+        Builder(byte[] bytes, int from, int to, int[] structurals) {
+            this.bytes = bytes;
+            this.from = from;
+            this.to = to;
+            this.structurals = structurals;
+            this.tape = new long[Math.max(16, structurals.length)];
+            this.open = new int[16];
+        }
+
+        /**
+         * The tape, or null if the input is not valid json
+         */
+        long[] build() {
+            int     pos         = skipWhiteSpace(from);
+            boolean expectValue = true;
+            while (true) {
+                if (expectValue) {
+                    int start = pos;
+                    pos = value(pos);
+                    if (pos < 0) {
+                        return null;
+                    }
+                    if (bytes[start] == '{' || bytes[start] == '[') {
+                        boolean isObject = bytes[start] == '{';
+                        pos = skipWhiteSpace(pos);
+                        if (pos < to && bytes[pos] == (isObject ? '}' : ']')) {
+                            close(pos++);
+                        } else {
+                            pos = isObject ? name(pos) : pos;
+                            if (pos < 0) {
+                                return null;
+                            }
+                            continue;
+                        }
+                    }
+                }
+                pos = skipWhiteSpace(pos);
+                if (depth == 0) {
+                    return pos == to ? Arrays.copyOf(tape, size) : null;
+                }
+                boolean inObject = kind(open[depth - 1]) == OBJECT;
+                if (pos < to && bytes[pos] == ',') {
+                    s++;
+                    pos = skipWhiteSpace(pos + 1);
+                    pos = inObject ? name(pos) : pos;
+                    if (pos < 0) {
+                        return null;
+                    }
+                    expectValue = true;
+                } else if (pos < to && bytes[pos] == (inObject ? '}' : ']')) {
+                    close(pos++);
+                    expectValue = false;
+                } else {
+                    return null;
+                }
+            }
+        }
+
+        /**
+         * Reads the value at pos, and returns the position after it, or -1 if there is no valid value there.
+         * For objects and arrays, only the opening character is read.
+         */
+        private int value(int pos) {
+            if (pos >= to) {
+                return -1;
+            }
+            switch (bytes[pos]) {
+                case '"':
+                    return string(pos);
+                case '{':
+                case '[':
+                    s++;
+                    if (depth == open.length) {
+                        open = Arrays.copyOf(open, depth * 2);
+                    }
+                    open[depth++] = size;
+                    append(bytes[pos], 0);
+                    return pos + 1;
+                case 't':
+                    return literal(pos, "true", TRUE);
+                case 'f':
+                    return literal(pos, "false", FALSE);
+                case 'n':
+                    return literal(pos, "null", NULL);
+                default:
+                    return number(pos);
+            }
+        }
+
+        /**
+         * Reads a field name and the colon after it, and returns the position of the value
+         */
+        private int name(int pos) {
+            if (pos >= to || bytes[pos] != '"') {
+                return -1;
+            }
+            pos = skipWhiteSpace(string(pos));
+            if (pos < 0 || pos >= to || bytes[pos] != ':') {
+                return -1;
+            }
+            s++;
+            return skipWhiteSpace(pos + 1);
+        }
+
+        private int string(int pos) {
+            if (s + 1 >= structurals.length || structurals[s] != pos) {
+                return -1;
+            }
+            append(STRING, pos);
+            int end = structurals[s + 1] + 1;
+            s += 2;
+            return end;
+        }
+
+        private int literal(int pos, String literal, int kind) {
+            if (pos + literal.length() > to) {
+                return -1;
+            }
+            for (int i = 0; i < literal.length(); i++) {
+                if (bytes[pos + i] != literal.charAt(i)) {
+                    return -1;
+                }
+            }
+            append(kind, 0);
+            return pos + literal.length();
+        }
+
+        /**
+         * Checks the number the same way as JsonScanner.readNumber() does
+         */
+        private int number(int pos) {
+            int start = pos;
+            if (pos < to && bytes[pos] == '-') {
+                pos++;
+            }
+            if (!isDigit(pos)) {
+                return -1;
+            }
+            if (bytes[pos++] != '0') {
+                pos = digits(pos);
+            }
+            long fractionDigits = 0;
+            if (pos < to && bytes[pos] == '.') {
+                if (!isDigit(++pos)) {
+                    return -1;
+                }
+                int fraction = pos;
+                pos = digits(pos);
+                fractionDigits = pos - fraction;
+            }
+            long exponent = 0;
+            if (pos < to && (bytes[pos] == 'e' || bytes[pos] == 'E')) {
+                pos++;
+                boolean negative = pos < to && bytes[pos] == '-';
+                if (pos < to && (bytes[pos] == '+' || bytes[pos] == '-')) {
+                    pos++;
+                }
+                if (!isDigit(pos)) {
+                    return -1;
+                }
+                while (isDigit(pos)) {
+                    exponent = Numbers.exponent(exponent, bytes[pos++] - '0');
+                }
+                exponent = negative ? -exponent : exponent;
+            }
+            if (!Numbers.hasBigDecimal(fractionDigits, exponent)) {
+                return -1;
+            }
+            append(NUMBER, start);
+            return pos;
+        }
+
+        private int digits(int pos) {
+            return ByteScans.scans.digitsEnd(bytes, pos, to);
+        }
+
+        private boolean isDigit(int pos) {
+            return pos < to && bytes[pos] >= '0' && bytes[pos] <= '9';
+        }
+
+        private int skipWhiteSpace(int pos) {
+            return pos < 0 ? pos : ByteScans.scans.whiteSpaceEnd(bytes, pos, to);
+        }
+
+        /**
+         * Closes the innermost container, pointing its start past the end
+         */
+        private void close(int pos) {
+            s++;
+            int start = open[--depth];
+            append(bytes[pos], start);
+            tape[start] |= size;
+        }
+
+        private void append(int kind, int payload) {
+            if (size == tape.length) {
+                tape = Arrays.copyOf(tape, size * 2);
+            }
+            tape[size++] = (long) kind << 56 | payload;
+        }
+
+        private int kind(int i) {
+            return (int) (tape[i] >>> 56);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.kantega.kson.parser;
+
+/**
+ * The tokens a JsonReader yields.
+ */
+public enum JsonToken {
+    START_OBJECT,
+    END_OBJECT,
+    START_ARRAY,
+    END_ARRAY,
+    FIELD_NAME,
+    STRING,
+    NUMBER,
+    TRUE,
+    FALSE,
+    NULL,
+    END_DOCUMENT
+}
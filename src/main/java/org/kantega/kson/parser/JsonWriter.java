@@ -1,105 +1,457 @@
 package org.kantega.kson.parser;
 
-import fj.data.List;
-import fj.data.Stream;
-import fj.function.Effect1;
 import fj.function.TryEffect1;
-import org.kantega.kson.json.JsonValue;
+import fj.function.TryEffect2;
+import org.kantega.kson.codec.JsonEncoder;
+import org.kantega.kson.json.*;
+import org.kantega.kson.parser.JsonSink.Literal;
 
 import java.io.IOException;
-import java.io.StringWriter;
-import java.io.Writer;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
+/**
+ * Writes json, compact or pretty, as a String or straight to an Appendable, or as utf-8 to a byte[], an OutputStream
+ * or a ByteBuffer. The output is written through one buffer, without building strings for the parts of the value.
+ * <p>
+ * Encoders write their values token by token through the writeX methods, which keep track of the commas and the
+ * indentation.
+ */
 public class JsonWriter {
     private static final int CONTROL_CHARACTERS_END = 0x001f;
 
-    private static final char[] QUOT_CHARS         = {'\\', '"'};
-    private static final char[] BS_CHARS           = {'\\', '\\'};
-    private static final char[] LF_CHARS           = {'\\', 'n'};
-    private static final char[] CR_CHARS           = {'\\', 'r'};
-    private static final char[] TAB_CHARS          = {'\\', 't'};
+    private static final Literal QUOT_CHARS         = new Literal("\\\"");
+    private static final Literal BS_CHARS           = new Literal("\\\\");
+    private static final Literal LF_CHARS           = new Literal("\\n");
+    private static final Literal CR_CHARS           = new Literal("\\r");
+    private static final Literal TAB_CHARS          = new Literal("\\t");
     // In JavaScript, U+2028 and U+2029 characters count as line endings and must be encoded.
     // http://stackoverflow.com/questions/2965293/javascript-parse-error-on-u2028-unicode-character
-    private static final char[] UNICODE_2028_CHARS = {'\\', 'u', '2', '0', '2', '8'};
-    private static final char[] UNICODE_2029_CHARS = {'\\', 'u', '2', '0', '2', '9'};
-    private static final char[] HEX_DIGITS         = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
+    private static final Literal UNICODE_2028_CHARS = new Literal("\\u2028");
+    private static final Literal UNICODE_2029_CHARS = new Literal("\\u2029");
+    private static final char[]  HEX_DIGITS         = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
       'a', 'b', 'c', 'd', 'e', 'f'};
 
+    private static final Literal NULL  = new Literal("null");
+    private static final Literal TRUE  = new Literal("true");
+    private static final Literal FALSE = new Literal("false");
+
+    private static final Literal[] CONTROL_CHARS = controlChars();
+
+    private static final int TOP    = 0;
+    private static final int ARRAY  = 1;
+    private static final int OBJECT = 2;
+    private static final int FIELD  = 3;
+
+    private final JsonSink                                  out;
+    private final boolean                                   pretty;
+    private final TryEffect2<String, JsonValue, IOException> fieldWriter = this::writeField;
+    private       int                                       indent;
+    private       int                                       scope        = TOP;
+    private       boolean                                   first        = true;
+    private       byte[]                                    outerScopes  = new byte[16];
+    private       int                                       depth;
+
+    private JsonWriter(JsonSink out, boolean pretty) {
+        this.out = out;
+        this.pretty = pretty;
+    }
 
     public static String write(JsonValue json) {
-        return json
-          .onNull(() -> "null")
-          .orElse(json.onBool(Object::toString))
-          .orElse(json.onNumber(BigDecimal::toString))
-          .orElse(json.onString(s -> "\"" + writeJsonString(s) + "\""))
-          .orElse(json.onArray(arr -> arr.isEmpty() ? "[]" : "[" + arr.tail().foldLeft((sum, val) -> sum + "," + write(val), write(arr.head())) + "]"))
-          .orElse(json.onObject(obj -> mkString(obj.toList().map(pairs -> "\"" + pairs._1() + "\":" + write(pairs._2())), "{", ",", "}")))
-          .orSome("");
+        return writeToString(writer -> writer.writeValue(json), false);
     }
 
     public static String writePretty(JsonValue json) {
-        return writePretty(json, 0);
+        return writeToString(writer -> writer.writeValue(json), true);
     }
 
-    private static String writePretty(JsonValue json, int indent) {
-        return json
-          .onNull(() -> "null")
-          .orElse(json.onBool(Object::toString))
-          .orElse(json.onNumber(BigDecimal::toString))
-          .orElse(json.onString(s -> "\"" + writeJsonString(s) + "\""))
-          .orElse(json.onArray(arr -> arr.isEmpty() ? "[]" : "[\n" + arr.tail().foldLeft((sum, val) -> sum + line(",") + indent(indent + 2) + writePretty(val, indent + 2), indent(indent + 2) + writePretty(arr.head(), indent + 2)) + "\n" + indent(indent) + "]"))
-          .orElse(json.onObject(obj -> mkString(obj.toList().map(pairs -> indent(indent + 2) + "\"" + pairs._1() + "\":" + writePretty(pairs._2(), indent + 2)), line("{"), ",\n", "\n" + indent(indent) + "}")))
-          .orSome("");
+    /**
+     * Writes the json to the Appendable, through a buffer, without building it as a String first. The output is
+     * the same as write(json) gives. A Writer is not flushed or closed.
+     */
+    public static void write(JsonValue json, Appendable out) throws IOException {
+        write(writer -> writer.writeValue(json), new CharSink(out), false);
     }
 
-    private static String mkString(List<String> vals, String pre, String delim, String post) {
-        return vals.isEmpty()
-          ? pre + post
-          : pre + vals.tail().foldLeft((sum, v) -> sum + delim + v, vals.head()) + post;
+    public static void writePretty(JsonValue json, Appendable out) throws IOException {
+        write(writer -> writer.writeValue(json), new CharSink(out), true);
     }
 
-    private static String indent(int depth) {
-        return Stream.asString(Stream.repeat(' ').take(depth));
+    /**
+     * Writes the json as utf-8 bytes, encoded directly, without making a String first. The bytes are the same as
+     * write(json).getBytes(UTF_8) gives.
+     */
+    public static byte[] writeUtf8(JsonValue json) {
+        return writeToBytes(writer -> writer.writeValue(json), false);
     }
 
-    private static String line(String l) {
-        return l + "\n";
+    public static byte[] writePrettyUtf8(JsonValue json) {
+        return writeToBytes(writer -> writer.writeValue(json), true);
     }
 
+    /**
+     * Writes the json to the stream, encoded directly as utf-8. The stream is not flushed or closed.
+     */
+    public static void write(JsonValue json, OutputStream out) throws IOException {
+        write(writer -> writer.writeValue(json), Utf8Sink.to(out), false);
+    }
 
-    private static Effect1<Writer> write(TryEffect1<Writer, IOException> effect) {
-        return writer -> {
-            try {
-                effect.f(writer);
-            } catch (Exception e) {
-                throw new RuntimeException("Could not write json to writer: " + e.getMessage(), e);
-            }
-        };
+    public static void writePretty(JsonValue json, OutputStream out) throws IOException {
+        write(writer -> writer.writeValue(json), Utf8Sink.to(out), true);
+    }
+
+    /**
+     * Writes the json into the buffer, encoded as utf-8, starting at its position. Throws
+     * java.nio.BufferOverflowException if the json does not fit in the remaining space.
+     */
+    public static void write(JsonValue json, ByteBuffer out) {
+        writeToMemory(writer -> writer.writeValue(json), Utf8Sink.to(out), false);
+    }
+
+    public static void writePretty(JsonValue json, ByteBuffer out) {
+        writeToMemory(writer -> writer.writeValue(json), Utf8Sink.to(out), true);
+    }
+
+    /**
+     * Encodes the value with the encoder and writes it in one pass. The output is the same as for
+     * write(encoder.encode(a)), but the encoders in JsonEncoders write straight to the output, without building
+     * the JsonValue tree.
+     *
+     * @param a       The value to write
+     * @param encoder The encoder for the value
+     * @param <A>     The type of the value
+     * @return The json
+     */
+    public static <A> String write(A a, JsonEncoder<A> encoder) {
+        return writeToString(writer -> encoder.encode(a, writer), false);
+    }
+
+    public static <A> String writePretty(A a, JsonEncoder<A> encoder) {
+        return writeToString(writer -> encoder.encode(a, writer), true);
+    }
+
+    public static <A> byte[] writeUtf8(A a, JsonEncoder<A> encoder) {
+        return writeToBytes(writer -> encoder.encode(a, writer), false);
+    }
+
+    public static <A> void write(A a, JsonEncoder<A> encoder, Appendable out) throws IOException {
+        write(writer -> encoder.encode(a, writer), new CharSink(out), false);
+    }
+
+    public static <A> void write(A a, JsonEncoder<A> encoder, OutputStream out) throws IOException {
+        write(writer -> encoder.encode(a, writer), Utf8Sink.to(out), false);
+    }
+
+    private static void write(TryEffect1<JsonWriter, IOException> body, JsonSink out, boolean pretty) throws IOException {
+        body.f(new JsonWriter(out, pretty));
+        out.flush();
+    }
+
+    private static String writeToString(TryEffect1<JsonWriter, IOException> body, boolean pretty) {
+        CharSink out = new CharSink(null);
+        writeToMemory(body, out, pretty);
+        return out.toString();
     }
 
-    private static String writeJsonString(String string) {
+    private static byte[] writeToBytes(TryEffect1<JsonWriter, IOException> body, boolean pretty) {
+        Utf8Sink out = Utf8Sink.growable();
+        writeToMemory(body, out, pretty);
+        return out.toByteArray();
+    }
+
+    private static void writeToMemory(TryEffect1<JsonWriter, IOException> body, JsonSink out, boolean pretty) {
         try {
-            StringWriter writer = new StringWriter();
-            int          length = string.length();
-            int          start  = 0;
-            for (int index = 0; index < length; index++) {
-                char[] replacement = getReplacementChars(string.charAt(index));
-                if (replacement != null) {
-                    writer.write(string, start, index - start);
-                    writer.write(replacement);
-                    start = index + 1;
+            write(body, out, pretty);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write json to a buffer: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the value, as an element of the array or the value of the field being written, if any.
+     */
+    public void writeValue(JsonValue json) throws IOException {
+        switch (json.kind()) {
+            case STRING:
+                writeString(((JsonString) json).value);
+                break;
+            case OBJECT:
+                writeStartObject();
+                ((JsonObject) json).forEachField(fieldWriter);
+                writeEndObject();
+                break;
+            case ARRAY:
+                JsonArray array = (JsonArray) json;
+                int length = array.length();
+                writeStartArray();
+                for (int i = 0; i < length; i++) {
+                    writeValue(array.get(i));
+                }
+                writeEndArray();
+                break;
+            case NUMBER:
+                beforeValue();
+                writeNumber((JsonNumber) json);
+                break;
+            case BOOL:
+                writeBool(((JsonBool) json).value);
+                break;
+            case NULL:
+                writeNull();
+                break;
+            default:
+                // a value that is none of the kinds is written as null, so that the output stays json
+                JsonValue known = known(json);
+                if (known != null) {
+                    writeValue(known);
+                } else {
+                    writeNull();
                 }
+        }
+    }
+
+    public void writeNull() throws IOException {
+        beforeValue();
+        out.write(NULL);
+    }
+
+    public void writeBool(boolean value) throws IOException {
+        beforeValue();
+        out.write(value ? TRUE : FALSE);
+    }
+
+    /**
+     * Writes the number the same way as a JsonNumber made from it is written
+     */
+    public void writeNumber(BigDecimal value) throws IOException {
+        beforeValue();
+        out.write(value.toString());
+    }
+
+    /**
+     * Writes the number the same way as a JsonNumber made from it is written
+     */
+    public void writeNumber(long value) throws IOException {
+        beforeValue();
+        out.write(Long.toString(value));
+    }
+
+    public void writeString(String value) throws IOException {
+        beforeValue();
+        writeQuoted(value);
+    }
+
+    public void writeStartObject() throws IOException {
+        beforeValue();
+        enter(OBJECT);
+        if (pretty) {
+            out.write("{\n");
+        } else {
+            out.write('{');
+        }
+    }
+
+    /**
+     * Writes the name of the next field of the object being written. Names are written as they are, the same way
+     * as they always have. The value of the field must be written next.
+     */
+    public void writeFieldName(String name) throws IOException {
+        if (scope != OBJECT) {
+            throw new IllegalStateException("A field name can only be written in an object, before a value");
+        }
+        if (!first) {
+            out.write(pretty ? ",\n" : ",");
+        }
+        first = false;
+        scope = FIELD;
+        out.spaces(pretty ? indent : 0);
+        out.write('"');
+        out.write(name);
+        out.write("\":");
+    }
+
+    /**
+     * Writes a field name that was prepared with fieldName(name). The output is the same as for writeFieldName(name),
+     * but compact output is copied from the prepared chars or bytes.
+     */
+    public void writeFieldName(FieldName name) throws IOException {
+        if (pretty || scope != OBJECT) {
+            writeFieldName(name.name);
+            return;
+        }
+        out.write(first ? name.first : name.next);
+        first = false;
+        scope = FIELD;
+    }
+
+    public void writeEndObject() throws IOException {
+        if (scope != OBJECT) {
+            throw new IllegalStateException("There is no object to end");
+        }
+        exit();
+        if (pretty) {
+            out.write('\n');
+            out.spaces(indent);
+        }
+        out.write('}');
+    }
+
+    public void writeStartArray() throws IOException {
+        beforeValue();
+        enter(ARRAY);
+        out.write('[');
+    }
+
+    public void writeEndArray() throws IOException {
+        if (scope != ARRAY) {
+            throw new IllegalStateException("There is no array to end");
+        }
+        boolean empty = first;
+        exit();
+        if (pretty && !empty) {
+            out.write('\n');
+            out.spaces(indent);
+        }
+        out.write(']');
+    }
+
+    /**
+     * Prepares the name for writeFieldName(FieldName), for objects that are written many times with the same fields.
+     */
+    public static FieldName fieldName(String name) {
+        return new FieldName(name);
+    }
+
+    /**
+     * A field name, rendered once with its quotes and colon, with and without the comma before it
+     */
+    public static final class FieldName {
+        private final String  name;
+        private final Literal first;
+        private final Literal next;
+
+        private FieldName(String name) {
+            this.name = name;
+            this.first = new Literal("\"" + name + "\":");
+            this.next = new Literal(",\"" + name + "\":");
+        }
+
+        public String name() {
+            return name;
+        }
+    }
+
+    private void writeField(String name, JsonValue value) throws IOException {
+        writeFieldName(name);
+        writeValue(value);
+    }
+
+    /**
+     * Writes what comes before an element of an array, and checks that a value of a field has a name.
+     */
+    private void beforeValue() throws IOException {
+        if (scope == ARRAY) {
+            if (!first) {
+                out.write(pretty ? ",\n" : ",");
+            } else if (pretty) {
+                out.write('\n');
+            }
+            first = false;
+            out.spaces(pretty ? indent : 0);
+        } else if (scope == FIELD) {
+            scope = OBJECT;
+        } else if (scope == OBJECT) {
+            throw new IllegalStateException("A value in an object must come after a field name");
+        }
+    }
+
+    private void enter(int inner) {
+        if (depth == outerScopes.length) {
+            outerScopes = Arrays.copyOf(outerScopes, depth * 2);
+        }
+        outerScopes[depth++] = (byte) (scope << 1 | (first ? 1 : 0));
+        scope = inner;
+        first = true;
+        indent += 2;
+    }
+
+    private void exit() {
+        byte outer = outerScopes[--depth];
+        scope = outer >> 1;
+        first = (outer & 1) == 1;
+        indent -= 2;
+    }
+
+    /**
+     * Writes the number the way BigDecimal.toString() does. Integers, and decimals with a whole part that is not
+     * zero, in the form the parser accepts, look the same, and are written as they are.
+     */
+    private void writeNumber(JsonNumber number) throws IOException {
+        String text = number.value();
+        out.write(isPlain(text) ? text : number.bigDecimalValue().toString());
+    }
+
+    private void writeQuoted(String string) throws IOException {
+        out.write('"');
+        int length = string.length();
+        int start  = 0;
+        for (int index = 0; index < length; index++) {
+            Literal replacement = getReplacementChars(string.charAt(index));
+            if (replacement != null) {
+                out.write(string, start, index);
+                out.write(replacement);
+                start = index + 1;
             }
-            writer.write(string, start, length - start);
-            return writer.toString();
-        } catch (Exception e) {
-            throw new RuntimeException("Could not write string" + e.getMessage(), e);
         }
+        out.write(string, start, length);
+        out.write('"');
     }
 
+    private static boolean isPlain(String number) {
+        int i = number.startsWith("-") ? 1 : 0;
+        if (i == number.length() || number.charAt(i) < '1' || number.charAt(i) > '9') {
+            return number.equals("0");
+        }
+        while (i < number.length() && isDigit(number.charAt(i))) {
+            i++;
+        }
+        if (i < number.length() && number.charAt(i) == '.' && i + 1 < number.length()) {
+            i++;
+            while (i < number.length() && isDigit(number.charAt(i))) {
+                i++;
+            }
+        }
+        return i == number.length();
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * A value of some other subclass of JsonValue, as one of the json classes, or null if it is none of the kinds
+     */
+    private static JsonValue known(JsonValue json) {
+        return json.onNull(JsonValues::jNull)
+          .orElse(json.onBool(JsonValues::jBool))
+          .orElse(json.onNumber(JsonValues::jNum))
+          .orElse(json.onString(JsonValues::jString))
+          .orElse(json.onArray(JsonValues::jArray))
+          .orElse(json.onObject(JsonValues::jObj))
+          .toNull();
+    }
+
+    private static Literal[] controlChars() {
+        Literal[] chars = new Literal[CONTROL_CHARACTERS_END + 1];
+        for (int ch = 0; ch <= CONTROL_CHARACTERS_END; ch++) {
+            chars[ch] = new Literal(new String(new char[]{'\\', 'u', '0', '0', HEX_DIGITS[ch >> 4 & 0x000f], HEX_DIGITS[ch & 0x000f]}));
+        }
+        return chars;
+    }
 
-    private static char[] getReplacementChars(char ch) {
+    private static Literal getReplacementChars(char ch) {
         if (ch > '\\') {
             if (ch < '\u2028' || ch > '\u2029') {
                 // The lower range contains 'a' .. 'z'. Only 2 checks required.
@@ -129,6 +481,6 @@ public class JsonWriter {
         if (ch == '\t') {
             return TAB_CHARS;
         }
-        return new char[]{'\\', 'u', '0', '0', HEX_DIGITS[ch >> 4 & 0x000f], HEX_DIGITS[ch & 0x000f]};
+        return CONTROL_CHARS[ch];
     }
 }
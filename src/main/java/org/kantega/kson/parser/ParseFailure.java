@@ -7,11 +7,24 @@ public class ParseFailure extends RuntimeException {
   public final int line;
   public final int i;
 
+  /**
+   * The offset and the column as longs, since inputs that are streamed or mapped can be longer than an int reaches.
+   * offset and i are these capped at Integer.MAX_VALUE.
+   */
+  public final long position;
+  public final long column;
+
   public ParseFailure(String message, int offset, int line, int i) {
+    this(message, (long) offset, line, (long) i);
+  }
+
+  public ParseFailure(String message, long offset, int line, long i) {
     super(message);
-    this.offset = offset;
+    this.offset = (int) Math.min(offset, Integer.MAX_VALUE);
     this.line = line;
-    this.i = i;
+    this.i = (int) Math.min(i, Integer.MAX_VALUE);
+    this.position = offset;
+    this.column = i;
   }
 
 
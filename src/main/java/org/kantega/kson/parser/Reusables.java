@@ -0,0 +1,40 @@
+package org.kantega.kson.parser;
+
+/**
+ * The parser, the reader and the scanners that a thread keeps from one parse to the next, so that parsing a small
+ * string or byte array does not allocate any buffers. A parse that starts while another one is running on the same
+ * thread, as from inside a decoder, gets new ones.
+ */
+final class Reusables {
+
+    static final int MAX_REUSED_STACK = 1024;
+
+    private static final ThreadLocal<Reusables> perThread = ThreadLocal.withInitial(Reusables::new);
+
+    final CharScanner chars  = new CharScanner();
+    final Utf8Scanner bytes  = new Utf8Scanner();
+    final JsonParser  parser = new JsonParser(null);
+    final JsonReader  reader = new JsonReader(null);
+
+    private boolean inUse;
+
+    static Reusables acquire() {
+        Reusables reusables = perThread.get();
+        if (reusables.inUse) {
+            return new Reusables();
+        }
+        reusables.inUse = true;
+        return reusables;
+    }
+
+    /**
+     * Lets go of the input and the parsed values, and makes these available to the next parse on the thread
+     */
+    void release() {
+        chars.release();
+        bytes.release();
+        parser.clear();
+        reader.clear();
+        inUse = false;
+    }
+}
@@ -0,0 +1,203 @@
+package org.kantega.kson.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Scans utf-8 encoded bytes, either from an array that holds the whole input, or from an InputStream.
+ * Structural characters, whitespace and numbers are scanned as raw bytes, only the contents of strings are decoded.
+ * Since no multibyte sequence in utf-8 contains ascii bytes, a byte that looks like a quote or a backslash
+ * always is one. Offsets in ParseFailures are byte offsets.
+ */
+class Utf8Scanner extends JsonScanner {
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final InputStream in;
+    private       byte[]      buffer;
+    private       long        bufferOffset;
+    private       int         index;
+    private       int         fill;
+    private       int         captureStart;
+    private       byte[]      captureBytes;
+    private       int         captureLength;
+
+    /**
+     * Scans the bytes in place, without copying them.
+     */
+    Utf8Scanner(byte[] bytes, int offset, int length) {
+        this.in = null;
+        this.buffer = bytes;
+        this.index = offset;
+        this.fill = offset + length;
+        this.bufferOffset = -offset;
+        captureStart = -1;
+    }
+
+    /**
+     * A scanner without input, that is given an array to scan in place with reset()
+     */
+    Utf8Scanner() {
+        this.in = null;
+        captureStart = -1;
+    }
+
+    /**
+     * Starts scanning the bytes in place, reusing the buffers of this scanner
+     */
+    Utf8Scanner reset(byte[] bytes, int offset, int length) {
+        resetState();
+        this.buffer = bytes;
+        this.index = offset;
+        this.fill = offset + length;
+        this.bufferOffset = -offset;
+        captureStart = -1;
+        captureLength = 0;
+        return this;
+    }
+
+    /**
+     * Lets go of the input, so that a scanner that is kept for reuse does not hold on to it
+     */
+    void release() {
+        buffer = null;
+        names = null;
+    }
+
+    Utf8Scanner(InputStream in) {
+        this.in = in;
+        this.buffer = new byte[DEFAULT_BUFFER_SIZE];
+        captureStart = -1;
+    }
+
+    @Override
+    void read() throws IOException {
+        if (index == fill) {
+            if (in == null) {
+                current = -1;
+                return;
+            }
+            if (captureStart != -1) {
+                appendCaptureBytes(captureStart, fill);
+                captureStart = 0;
+            }
+            bufferOffset += fill;
+            fill = in.read(buffer, 0, buffer.length);
+            index = 0;
+            if (fill == -1) {
+                current = -1;
+                return;
+            }
+        }
+        if (current == '\n') {
+            line++;
+            lineOffset = bufferOffset + index;
+        }
+        current = buffer[index++] & 0xff;
+    }
+
+    @Override
+    void readStringChars() throws IOException {
+        skipTo(ByteScans.scans.stringEnd(buffer, index, fill));
+    }
+
+    @Override
+    void readDigits() throws IOException {
+        while (current >= '0' && current <= '9') {
+            skipTo(ByteScans.scans.digitsEnd(buffer, index, fill));
+        }
+    }
+
+    /**
+     * Skips runs of blanks in bulk, but reads newlines one at a time, so that they are counted
+     */
+    @Override
+    void skipWhiteSpace() throws IOException {
+        while (isWhiteSpace()) {
+            if (current != '\n') {
+                skipTo(ByteScans.scans.blanksEnd(buffer, index, fill));
+            } else {
+                read();
+            }
+        }
+    }
+
+    /**
+     * Reads past the current char and the bytes before end, which all belong to the same run as the current
+     * char. None of them are newlines.
+     */
+    private void skipTo(int end) throws IOException {
+        if (end > index) {
+            current = buffer[end - 1] & 0xff;
+            index = end;
+        }
+        read();
+    }
+
+    @Override
+    void startCapture() {
+        if (captureBuffer == null) {
+            captureBuffer = new StringBuilder();
+        }
+        captureStart = index - 1;
+    }
+
+    @Override
+    void pauseCapture() {
+        captureBuffer.append(decodeCaptured());
+        captureStart = -1;
+    }
+
+    @Override
+    String endCapture() {
+        String captured = decodeCaptured();
+        if (captureBuffer.length() > 0) {
+            captureBuffer.append(captured);
+            captured = captureBuffer.toString();
+            captureBuffer.setLength(0);
+        }
+        captureStart = -1;
+        return captured;
+    }
+
+    @Override
+    String endCaptureName(int hash) {
+        if (captureLength > 0) {
+            return endCapture();
+        }
+        String name = names.name(buffer, captureStart, index - 1, hash);
+        captureStart = -1;
+        return name;
+    }
+
+    @Override
+    long position() {
+        return bufferOffset + index;
+    }
+
+    private String decodeCaptured() {
+        int end = current == -1 ? index : index - 1;
+        if (captureLength == 0) {
+            return new String(buffer, captureStart, end - captureStart, UTF_8);
+        }
+        appendCaptureBytes(captureStart, end);
+        String captured = new String(captureBytes, 0, captureLength, UTF_8);
+        captureLength = 0;
+        return captured;
+    }
+
+    private void appendCaptureBytes(int start, int end) {
+        int length = end - start;
+        if (captureBytes == null) {
+            captureBytes = new byte[Math.max(DEFAULT_BUFFER_SIZE, length)];
+        } else if (captureLength + length > captureBytes.length) {
+            byte[] grown = new byte[Math.max(captureBytes.length * 2, captureLength + length)];
+            System.arraycopy(captureBytes, 0, grown, 0, captureLength);
+            captureBytes = grown;
+        }
+        System.arraycopy(buffer, start, captureBytes, captureLength, length);
+        captureLength += length;
+    }
+}
@@ -0,0 +1,137 @@
+package org.kantega.kson.parser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The buffer JsonWriter writes utf-8 into, without going through chars. Without an OutputStream or a ByteBuffer,
+ * the buffer grows to hold the whole output. With one, the buffer is handed to it whenever it is full.
+ */
+final class Utf8Sink extends JsonSink {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final OutputStream stream;
+    private final ByteBuffer   target;
+    private       byte[]       buffer;
+    private       int          count;
+
+    private Utf8Sink(OutputStream stream, ByteBuffer target) {
+        this.stream = stream;
+        this.target = target;
+        this.buffer = new byte[stream == null && target == null ? 256 : BUFFER_SIZE];
+    }
+
+    static Utf8Sink growable() {
+        return new Utf8Sink(null, null);
+    }
+
+    static Utf8Sink to(OutputStream stream) {
+        return new Utf8Sink(stream, null);
+    }
+
+    static Utf8Sink to(ByteBuffer target) {
+        return new Utf8Sink(null, target);
+    }
+
+    @Override
+    void write(char c) throws IOException {
+        if (count == buffer.length) {
+            makeRoom(1);
+        }
+        buffer[count++] = (byte) c;
+    }
+
+    @Override
+    void write(Literal literal) throws IOException {
+        byte[] bytes = literal.bytes;
+        int    from  = 0;
+        while (from < bytes.length) {
+            if (count + bytes.length - from > buffer.length) {
+                makeRoom(bytes.length - from);
+            }
+            // a literal longer than the buffer of a streaming sink is copied a buffer at a time
+            int length = Math.min(bytes.length - from, buffer.length - count);
+            System.arraycopy(bytes, from, buffer, count, length);
+            count += length;
+            from += length;
+        }
+    }
+
+    /**
+     * Copies runs of ascii straight into the buffer, and encodes the rest. A surrogate that is not part of a pair
+     * is written as '?', like String.getBytes does.
+     */
+    @Override
+    void write(String string, int from, int to) throws IOException {
+        while (from < to) {
+            if (buffer.length - count < 4) {
+                makeRoom(to - from);
+            }
+            // Stops early enough to leave room for encoding the char it stops at
+            int end = Math.min(to, from + buffer.length - count - 3);
+            char c;
+            while (from < end && (c = string.charAt(from)) < 0x80) {
+                buffer[count++] = (byte) c;
+                from++;
+            }
+            if (from < end) {
+                from = encode(string, from, to);
+            }
+        }
+    }
+
+    /**
+     * Encodes the char at index, which is not ascii, and returns the index after it. There is room for four bytes.
+     */
+    private int encode(String string, int index, int to) {
+        char c = string.charAt(index);
+        if (c < 0x800) {
+            buffer[count++] = (byte) (0xc0 | c >> 6);
+            buffer[count++] = (byte) (0x80 | c & 0x3f);
+        } else if (!Character.isSurrogate(c)) {
+            buffer[count++] = (byte) (0xe0 | c >> 12);
+            buffer[count++] = (byte) (0x80 | c >> 6 & 0x3f);
+            buffer[count++] = (byte) (0x80 | c & 0x3f);
+        } else if (Character.isHighSurrogate(c) && index + 1 < to && Character.isLowSurrogate(string.charAt(index + 1))) {
+            int codePoint = Character.toCodePoint(c, string.charAt(index + 1));
+            buffer[count++] = (byte) (0xf0 | codePoint >> 18);
+            buffer[count++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+            buffer[count++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+            buffer[count++] = (byte) (0x80 | codePoint & 0x3f);
+            return index + 2;
+        } else {
+            buffer[count++] = '?';
+        }
+        return index + 1;
+    }
+
+    @Override
+    void flush() throws IOException {
+        if (count == 0) {
+            return;
+        }
+        if (stream != null) {
+            stream.write(buffer, 0, count);
+        } else if (target != null) {
+            target.put(buffer, 0, count);
+        } else {
+            return;
+        }
+        count = 0;
+    }
+
+    private void makeRoom(int length) throws IOException {
+        if (stream == null && target == null) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + Math.max(length, 4)));
+        } else {
+            flush();
+        }
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, count);
+    }
+}
@@ -125,6 +125,6 @@ public class SkinnyDecoders {
     }
 
     public static <A> JsonResult<A> fail(JsonValue v) {
-        return JsonResult.fail("Expected a list, but got a " + v);
+        return JsonResult.failLazy(() -> "Expected a list, but got a " + v);
     }
 }
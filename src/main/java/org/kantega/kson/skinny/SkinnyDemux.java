@@ -38,11 +38,11 @@ public class SkinnyDemux<A> implements JsonDecoder<A> {
         return
           value.asObject().bind(
             obj ->
-              obj.pairs.min().map(pair -> {
+              obj.toList().headOption().map(pair -> {
                   String                 name         = pair._1();
                   Option<JsonDecoder<A>> maybeDecoder = decoders.get(name);
                   return maybeDecoder.map(decoder -> decoder.<A>decode(pair._2()))
-                    .orSome(JsonResult.fail("No decoder registered with name " + name + " in demuxer"));
+                    .orSome(JsonResult.failLazy(() -> "No decoder registered with name " + name + " in demuxer"));
               }).orSome(JsonResult.fail("Found an empty object when trying to demux a message"))
           );
     }
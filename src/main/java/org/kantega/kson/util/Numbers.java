@@ -0,0 +1,167 @@
+package org.kantega.kson.util;
+
+import java.math.BigDecimal;
+
+/**
+ * Conversions of json number literals to primitives. The common literals are converted straight from the text,
+ * the rest go through BigDecimal. The results are always the same as BigDecimal would give.
+ */
+public class Numbers {
+
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+  private static final long[] LONG_POWERS_OF_TEN = {
+      1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L, 10000000000L,
+      100000000000L, 1000000000000L, 10000000000000L, 100000000000000L, 1000000000000000L, 10000000000000000L,
+      100000000000000000L, 1000000000000000000L};
+
+  /**
+   * Same as new BigDecimal(text).longValue()
+   */
+  public static long longValue(String text) {
+    int     length   = text.length();
+    boolean negative = length > 0 && text.charAt(0) == '-';
+    int     i        = negative ? 1 : 0;
+    int     start    = i;
+    long    result   = 0;
+    for (; i < length && i - start < 18; i++) {
+      char c = text.charAt(i);
+      if (c < '0' || c > '9') {
+        break;
+      }
+      result = result * 10 + (c - '0');
+    }
+    if (i == start || !(i == length || text.charAt(i) == '.' && isDigits(text, i + 1, length))) {
+      return new BigDecimal(text).longValue();
+    }
+    return negative ? -result : result;
+  }
+
+  /**
+   * Same as new BigDecimal(text).intValue()
+   */
+  public static int intValue(String text) {
+    return (int) longValue(text);
+  }
+
+  /**
+   * Same as new BigDecimal(text).doubleValue(). Literals with at most 15 significant digits and 22 decimals
+   * are exact in a double, and are divided by an exact power of ten, which rounds correctly.
+   */
+  public static double doubleValue(String text) {
+    int     length   = text.length();
+    boolean negative = length > 0 && text.charAt(0) == '-';
+    int     i        = negative ? 1 : 0;
+    int     start    = i;
+    long    mantissa = 0;
+    int     digits   = 0;
+    int     decimals = -1;
+    for (; i < length; i++) {
+      char c = text.charAt(i);
+      if (c == '.' && decimals == -1 && i > start) {
+        decimals = 0;
+      } else if (c >= '0' && c <= '9' && digits < 15) {
+        mantissa = mantissa * 10 + (c - '0');
+        if (mantissa != 0) {
+          digits++;
+        }
+        if (decimals != -1) {
+          decimals++;
+        }
+      } else {
+        return new BigDecimal(text).doubleValue();
+      }
+    }
+    if (i == start || decimals == 0 || decimals >= POWERS_OF_TEN.length) {
+      return new BigDecimal(text).doubleValue();
+    }
+    if (mantissa == 0) {
+      return 0.0;
+    }
+    double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+    return negative ? -value : value;
+  }
+
+  /**
+   * Same as BigDecimal.valueOf(unscaled, scale).longValue(), for a scale that is not negative
+   */
+  public static long longValue(long unscaled, int scale) {
+    if (scale < LONG_POWERS_OF_TEN.length) {
+      return unscaled / LONG_POWERS_OF_TEN[scale];
+    }
+    return BigDecimal.valueOf(unscaled, scale).longValue();
+  }
+
+  /**
+   * Same as BigDecimal.valueOf(unscaled, scale).doubleValue(), for a scale that is not negative. Unscaled values
+   * that are exact in a double are divided by an exact power of ten, which rounds correctly.
+   */
+  public static double doubleValue(long unscaled, int scale) {
+    if (unscaled == 0) {
+      return 0.0;
+    }
+    if (Math.abs(unscaled) < 1L << 53 && scale < POWERS_OF_TEN.length) {
+      return unscaled / POWERS_OF_TEN[scale];
+    }
+    return BigDecimal.valueOf(unscaled, scale).doubleValue();
+  }
+
+  /**
+   * True if new BigDecimal(text).toString() gives back the same text, so the text can be kept as it is.
+   */
+  public static boolean isCanonical(String text) {
+    int length       = text.length();
+    int start        = length > 0 && text.charAt(0) == '-' ? 1 : 0;
+    int dot          = -1;
+    int firstNonZero = -1;
+    for (int i = start; i < length; i++) {
+      char c = text.charAt(i);
+      if (c == '.' && dot == -1 && i > start && i < length - 1) {
+        dot = i;
+      } else if (c < '0' || c > '9') {
+        return false;
+      } else if (c != '0' && firstNonZero == -1) {
+        firstNonZero = i;
+      }
+    }
+    if (length == start || text.charAt(start) == '0' && start + 1 < length && dot != start + 1) {
+      return false;
+    }
+    if (firstNonZero == -1) {
+      return start == 0 && (dot == -1 || length - dot - 1 <= 6);
+    }
+    return firstNonZero < dot || dot == -1 || firstNonZero - dot - 1 <= 5;
+  }
+
+  /**
+   * True if a literal with the number of fraction digits and the exponent has a BigDecimal, that is, if both the
+   * exponent and the scale it gives fit an int. Exponents are capped, so any exponent too large to count is out of
+   * range.
+   */
+  public static boolean hasBigDecimal(long fractionDigits, long exponent) {
+    long scale = fractionDigits - exponent;
+    return exponent == (int) exponent && scale == (int) scale;
+  }
+
+  /**
+   * Adds the digit to the exponent, capping it far beyond the range of an int
+   */
+  public static long exponent(long exponent, int digit) {
+    return exponent < 1L << 40 ? exponent * 10 + digit : exponent;
+  }
+
+  private static boolean isDigits(String text, int from, int to) {
+    if (from == to) {
+      return false;
+    }
+    for (int i = from; i < to; i++) {
+      char c = text.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+}
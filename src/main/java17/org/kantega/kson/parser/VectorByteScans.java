@@ -0,0 +1,96 @@
+package org.kantega.kson.parser;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The scans of ByteScans, comparing 32 bytes at a time. The first 16 bytes are scanned one at a time, since most
+ * strings, numbers and whitespace in json end before that, and a vector would cost more than it saves. 256 bit
+ * vectors are used even where wider ones are supported, as wider ones seldom pay off on runs this short. Only in the
+ * Java 17 part of the multi-release jar, and only loaded when jdk.incubator.vector is present.
+ */
+final class VectorByteScans extends ByteScans {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_256;
+
+    private static final int LANES = SPECIES.length();
+
+    private static final int SHORT_RUN = 16;
+
+    VectorByteScans() {
+    }
+
+    @Override
+    int stringEnd(byte[] bytes, int from, int to) {
+        int i = super.stringEnd(bytes, from, Math.min(to, from + SHORT_RUN));
+        if (i < from + SHORT_RUN) {
+            return i;
+        }
+        for (; i <= to - LANES; i += LANES) {
+            ByteVector       v    = ByteVector.fromArray(SPECIES, bytes, i);
+            VectorMask<Byte> ends =
+              v.eq((byte) '"').or(v.eq((byte) '\\')).or(v.compare(VectorOperators.UNSIGNED_LT, (byte) 0x20));
+            if (ends.anyTrue()) {
+                return i + ends.firstTrue();
+            }
+        }
+        return super.stringEnd(bytes, i, to);
+    }
+
+    @Override
+    int blanksEnd(byte[] bytes, int from, int to) {
+        int i = super.blanksEnd(bytes, from, Math.min(to, from + SHORT_RUN));
+        if (i < from + SHORT_RUN) {
+            return i;
+        }
+        for (; i <= to - LANES; i += LANES) {
+            ByteVector       v      = ByteVector.fromArray(SPECIES, bytes, i);
+            VectorMask<Byte> blanks = v.eq((byte) ' ').or(v.eq((byte) '\t')).or(v.eq((byte) '\r'));
+            if (!blanks.allTrue()) {
+                return i + blanks.not().firstTrue();
+            }
+        }
+        return super.blanksEnd(bytes, i, to);
+    }
+
+    @Override
+    int whiteSpaceEnd(byte[] bytes, int from, int to) {
+        int i = super.whiteSpaceEnd(bytes, from, Math.min(to, from + SHORT_RUN));
+        if (i < from + SHORT_RUN) {
+            return i;
+        }
+        for (; i <= to - LANES; i += LANES) {
+            ByteVector       v          = ByteVector.fromArray(SPECIES, bytes, i);
+            VectorMask<Byte> whiteSpace =
+              v.eq((byte) ' ').or(v.eq((byte) '\n')).or(v.eq((byte) '\t')).or(v.eq((byte) '\r'));
+            if (!whiteSpace.allTrue()) {
+                return i + whiteSpace.not().firstTrue();
+            }
+        }
+        return super.whiteSpaceEnd(bytes, i, to);
+    }
+
+    @Override
+    int digitsEnd(byte[] bytes, int from, int to) {
+        int i = super.digitsEnd(bytes, from, Math.min(to, from + SHORT_RUN));
+        if (i < from + SHORT_RUN) {
+            return i;
+        }
+        for (; i <= to - LANES; i += LANES) {
+            ByteVector       v      = ByteVector.fromArray(SPECIES, bytes, i);
+            VectorMask<Byte> digits =
+              v.compare(VectorOperators.GE, (byte) '0').and(v.compare(VectorOperators.LE, (byte) '9'));
+            if (!digits.allTrue()) {
+                return i + digits.not().firstTrue();
+            }
+        }
+        return super.digitsEnd(bytes, i, to);
+    }
+
+    @Override
+    String name() {
+        return "vector, " + LANES + " lanes";
+    }
+}
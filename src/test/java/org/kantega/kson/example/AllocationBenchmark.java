@@ -0,0 +1,41 @@
+package org.kantega.kson.example;
+
+import org.kantega.kson.parser.JsonParser;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.kantega.kson.codec.JsonDecoders.*;
+
+/**
+ * Parses a small document over and over, and prints the bytes allocated and the time taken per parse.
+ */
+public class AllocationBenchmark {
+
+  static final String json = "{\"id\":12345,\"name\":\"Ola Nordmann\",\"active\":true,\"tags\":[\"a\",\"b\"],\"score\":4.5}";
+
+  static final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+
+  public static void main(String[] args) {
+    int iters = 1000000;
+    for (int round = 0; round < 3; round++) {
+      measure("String ", iters, () -> JsonParser.parse(json));
+      measure("byte[] ", iters, () -> JsonParser.parse(bytes));
+      measure("decode ", iters, () -> JsonParser.parse(bytes, obj(field("id", longDecoder))));
+    }
+  }
+
+  static void measure(String name, int iters, Runnable parse) {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long    thread    = Thread.currentThread().getId();
+    long    allocated = threads.getThreadAllocatedBytes(thread);
+    Instant start     = Instant.now();
+    for (int i = 0; i < iters; i++) {
+      parse.run();
+    }
+    Duration elapsed = Duration.between(start, Instant.now());
+    System.out.println(name + ": " + (threads.getThreadAllocatedBytes(thread) - allocated) / iters + " bytes, " + elapsed.toNanos() / iters + " ns per parse");
+  }
+}
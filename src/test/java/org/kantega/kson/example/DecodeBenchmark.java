@@ -0,0 +1,50 @@
+package org.kantega.kson.example;
+
+import fj.P8;
+import fj.data.List;
+import fj.data.Option;
+import org.kantega.kson.JsonResult;
+import org.kantega.kson.codec.JsonDecoder;
+import org.kantega.kson.json.JsonValue;
+import org.kantega.kson.parser.JsonParser;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.kantega.kson.codec.JsonDecoders.*;
+
+/**
+ * Decodes an object with eight fields over and over, from the parsed JsonValue and straight from the bytes, and
+ * prints the bytes allocated per decoded object. Then sequences a list of 100 results.
+ */
+public class DecodeBenchmark {
+
+  static final String json =
+      "{\"id\":12345,\"name\":\"Ola Nordmann\",\"email\":\"ola@example.com\",\"active\":true,\"score\":4.5," +
+          "\"tags\":[\"a\",\"b\"],\"nickname\":null,\"age\":42}";
+
+  static final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+
+  static final JsonDecoder<P8<Long, String, String, Boolean, Double, List<String>, Option<String>, Integer>> decoder =
+      obj(
+          field("id", longDecoder),
+          field("name", stringDecoder),
+          field("email", stringDecoder),
+          field("active", boolDecoder),
+          field("score", doubleDecoder),
+          field("tags", arrayDecoder(stringDecoder)),
+          optionalField("nickname", stringDecoder),
+          field("age", intDecoder));
+
+  static final List<JsonResult<Integer>> results =
+      List.range(0, 100).map(JsonResult::success);
+
+  public static void main(String[] args) {
+    JsonValue value = JsonParser.parse(json).orThrow();
+    int       iters = 500000;
+    for (int round = 0; round < 3; round++) {
+      AllocationBenchmark.measure("from value   ", iters, () -> decoder.decode(value));
+      AllocationBenchmark.measure("parse, decode", iters, () -> JsonParser.parse(bytes, decoder));
+      AllocationBenchmark.measure("sequence 100 ", iters, () -> JsonResult.sequence(results));
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package org.kantega.kson.example;
+
+import fj.P;
+import fj.P4;
+import fj.data.List;
+import fj.data.Option;
+import fj.data.Stream;
+import org.kantega.kson.codec.JsonEncoder;
+import org.kantega.kson.json.JsonValue;
+import org.kantega.kson.parser.JsonWriter;
+
+import java.io.IOException;
+
+import static org.kantega.kson.codec.JsonEncoders.*;
+
+/**
+ * Encodes a list of objects by building the JsonValue and writing it, and by writing it straight from the encoder.
+ * Then writes objects with eight fields, with the field names as strings and as prepared JsonWriter.FieldNames.
+ */
+public class EncoderBenchmark {
+
+  static final JsonEncoder<List<P4<Integer, String, Option<String>, List<String>>>> encoder =
+      arrayEncoder(obj(
+          field("id", integerEncoder),
+          field("name", stringEncoder),
+          field("email", optionEncoder(stringEncoder)),
+          field("tags", arrayEncoder(stringEncoder))));
+
+  static final List<P4<Integer, String, Option<String>, List<String>>> people =
+      Stream.range(0, 20000)
+          .map(i -> P.p(i, "Person number " + i, i % 3 == 0 ? Option.<String>none() : Option.some("person" + i + "@example.com"), List.list("a", "b")))
+          .toList();
+
+  static final String[] names =
+      {"customerReference", "orderNumber", "createdAt", "updatedAt", "status", "totalAmount", "currencyCode", "shippingAddress"};
+
+  static final JsonWriter.FieldName[] fieldNames =
+      Stream.arrayStream(names).map(JsonWriter::fieldName).toJavaList().toArray(new JsonWriter.FieldName[0]);
+
+  static final JsonEncoder<Integer> withNames =
+      encoder((count, writer) -> {
+        writer.writeStartArray();
+        for (int i = 0; i < count; i++) {
+          writer.writeStartObject();
+          for (String name : names) {
+            writer.writeFieldName(name);
+            writer.writeBool(true);
+          }
+          writer.writeEndObject();
+        }
+        writer.writeEndArray();
+      });
+
+  static final JsonEncoder<Integer> withFieldNames =
+      encoder((count, writer) -> {
+        writer.writeStartArray();
+        for (int i = 0; i < count; i++) {
+          writer.writeStartObject();
+          for (JsonWriter.FieldName name : fieldNames) {
+            writer.writeFieldName(name);
+            writer.writeBool(true);
+          }
+          writer.writeEndObject();
+        }
+        writer.writeEndArray();
+      });
+
+  /**
+   * An encoder that only writes directly
+   */
+  static <A> JsonEncoder<A> encoder(Writes<A> writes) {
+    return new JsonEncoder<A>() {
+      @Override
+      public JsonValue encode(A a) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void encode(A a, JsonWriter writer) throws IOException {
+        writes.write(a, writer);
+      }
+    };
+  }
+
+  interface Writes<A> {
+    void write(A a, JsonWriter writer) throws IOException;
+  }
+
+  public static void main(String[] args) {
+    System.out.println("Output of " + JsonWriter.write(people, encoder).length() / 1024 + " kB");
+    for (int round = 0; round < 5; round++) {
+      AllocationBenchmark.measure("tree, String    ", 20, () -> JsonWriter.write(encoder.encode(people)));
+      AllocationBenchmark.measure("direct, String  ", 20, () -> JsonWriter.write(people, encoder));
+      AllocationBenchmark.measure("tree, utf-8     ", 20, () -> JsonWriter.writeUtf8(encoder.encode(people)));
+      AllocationBenchmark.measure("direct, utf-8   ", 20, () -> JsonWriter.writeUtf8(people, encoder));
+      AllocationBenchmark.measure("names, String   ", 20, () -> JsonWriter.write(50000, withNames));
+      AllocationBenchmark.measure("prepared, String", 20, () -> JsonWriter.write(50000, withFieldNames));
+      AllocationBenchmark.measure("names, utf-8    ", 20, () -> JsonWriter.writeUtf8(50000, withNames));
+      AllocationBenchmark.measure("prepared, utf-8 ", 20, () -> JsonWriter.writeUtf8(50000, withFieldNames));
+    }
+  }
+}
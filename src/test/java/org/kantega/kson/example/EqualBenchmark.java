@@ -0,0 +1,35 @@
+package org.kantega.kson.example;
+
+import fj.data.Stream;
+import org.kantega.kson.json.JsonArray;
+import org.kantega.kson.json.JsonValue;
+import org.kantega.kson.parser.JsonParser;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Compares two parses of the same list of objects with JsonValue.eq(), and with a parse where the last object
+ * differs. Then dedupes the objects of both equal parses in a HashSet.
+ */
+public class EqualBenchmark {
+
+  static final String json =
+      Stream.range(0, 20000)
+          .foldLeft((sb, i) -> sb.append(i == 0 ? "[" : ",").append("{\"id\":").append(i).append(",\"name\":\"Person number ").append(i).append("\",\"score\":").append(i / 8.0).append(",\"active\":").append(i % 2 == 0).append(",\"tags\":[\"a\",\"b\",null]}"), new StringBuilder())
+          .append(']').toString();
+
+  public static void main(String[] args) {
+    JsonValue one   = JsonParser.parse(json).orThrow();
+    JsonValue other = JsonParser.parse(json).orThrow();
+    JsonValue last  = JsonParser.parse(json.replace("\"id\":19999", "\"id\":-1")).orThrow();
+    for (int round = 0; round < 5; round++) {
+      AllocationBenchmark.measure("eq       ", 20, () -> JsonValue.eq().eq(one, other));
+      AllocationBenchmark.measure("not eq   ", 20, () -> JsonValue.eq().eq(one, last));
+      AllocationBenchmark.measure("dedupe   ", 20, () -> {
+        Set<JsonValue> distinct = new HashSet<>(((JsonArray) one).values().toJavaList());
+        distinct.addAll(((JsonArray) other).values().toJavaList());
+      });
+    }
+  }
+}
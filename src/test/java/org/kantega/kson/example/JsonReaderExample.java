@@ -0,0 +1,51 @@
+package org.kantega.kson.example;
+
+import org.kantega.kson.parser.JsonReader;
+import org.kantega.kson.parser.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public class JsonReaderExample {
+
+    public static void main(String[] args) throws IOException {
+
+        //The reader only keeps track of the nesting, so it does not matter how big the input is
+        InputStream in     = JsonReaderExample.class.getResourceAsStream("/rap.json");
+        JsonReader  reader = JsonReader.reader(in);
+
+        int objects = 0;
+        int strings = 0;
+        int numbers = 0;
+
+        JsonToken token;
+        while ((token = reader.nextToken()) != JsonToken.END_DOCUMENT) {
+            switch (token) {
+                case START_OBJECT:
+                    objects++;
+                    break;
+                case STRING:
+                    strings++;
+                    break;
+                case NUMBER:
+                    numbers++;
+                    break;
+            }
+        }
+
+        System.out.println("Objects: " + objects + ", strings: " + strings + ", numbers: " + numbers);
+
+        //Subtrees you are not interested in can be skipped
+        JsonReader skipping = JsonReader.reader("{\"big\":[1,2,3,{\"deep\":[]}],\"id\":\"abc\"}");
+        skipping.nextToken();
+        while (skipping.nextToken() == JsonToken.FIELD_NAME) {
+            String name = skipping.currentName();
+            skipping.nextToken();
+            if (name.equals("id")) {
+                System.out.println("id is " + skipping.stringValue());
+            } else {
+                skipping.skipChildren();
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.kantega.kson.example;
+
+import fj.data.Stream;
+import org.kantega.kson.json.JsonArray;
+import org.kantega.kson.json.JsonNumber;
+import org.kantega.kson.json.JsonValue;
+import org.kantega.kson.parser.JsonParser;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses a metric series of 500000 points, and prints the heap the parsed value holds on to, and the time it takes
+ * to sum the values in it.
+ */
+public class NumberBenchmark {
+
+  static final byte[] bytes =
+      Stream.range(0, 500000)
+          .foldLeft((sb, i) -> sb.append(i == 0 ? "[" : ",").append('[').append(1534567890000L + i * 1000L).append(',').append((i % 1000) / 4.0).append(']'), new StringBuilder())
+          .append(']').toString().getBytes(StandardCharsets.UTF_8);
+
+  public static void main(String[] args) {
+    System.out.println("Series of " + bytes.length / (1 << 20) + " MB");
+    for (int round = 0; round < 3; round++) {
+      long      before = usedHeap();
+      JsonValue series = JsonParser.parse(bytes).orThrow();
+      long      after  = usedHeap();
+      System.out.println("parsed series holds " + (after - before) / (1 << 20) + " MB");
+      AllocationBenchmark.measure("sum", 20, () -> sum(series));
+    }
+  }
+
+  static double sum(JsonValue series) {
+    JsonArray points = (JsonArray) series;
+    double    sum    = 0;
+    for (int i = 0; i < points.length(); i++) {
+      JsonArray point = (JsonArray) points.get(i);
+      sum += ((JsonNumber) point.get(0)).longValue() % 1000 + ((JsonNumber) point.get(1)).doubleValue();
+    }
+    return sum;
+  }
+
+  static long usedHeap() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,79 @@
+package org.kantega.kson.example;
+
+import fj.data.List;
+import fj.data.Stream;
+import org.kantega.kson.json.JsonObject;
+import org.kantega.kson.json.JsonValue;
+import org.kantega.kson.parser.JsonParser;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Compares the flat objects that the parser builds with objects that keep their fields in a TreeMap, by the heap
+ * they retain and the time a get takes.
+ */
+public class ObjectBenchmark {
+
+  static final String[] names = {"id", "name", "email", "active", "score", "created", "tags", "address", "phone", "age", "city", "zip"};
+
+  public static void main(String[] args) {
+    int    count = 200000;
+    String json  = Stream.range(0, count).map(ObjectBenchmark::object).foldLeft((sum, obj) -> sum.append(obj).append(','), new StringBuilder("[")).append("{}]").toString();
+
+    List<JsonValue> parsed = JsonParser.parse(json).asArray().orThrow();
+
+    long              before = usedMemory();
+    List<JsonObject>  flat   = parsed.map(v -> (JsonObject) v).map(obj -> JsonObject.copyOf(names(obj), values(obj), 0, obj.size()));
+    long              middle = usedMemory();
+    List<JsonObject>  trees  = flat.map(obj -> new JsonObject(obj.pairs()));
+    long              after  = usedMemory();
+
+    System.out.println("Flat objects : " + (middle - before) / count + " bytes each");
+    System.out.println("Tree objects : " + (after - middle) / count + " bytes each");
+
+    for (int round = 0; round < 5; round++) {
+      System.out.println("Round " + round + ", flat get: " + time(flat) + " ms, tree get: " + time(trees) + " ms");
+    }
+  }
+
+  static String object(int i) {
+    StringBuilder sb = new StringBuilder("{");
+    for (int n = 0; n < names.length; n++) {
+      sb.append(n == 0 ? "" : ",").append('"').append(names[n]).append("\":").append(i + n);
+    }
+    return sb.append('}').toString();
+  }
+
+  static String[] names(JsonObject obj) {
+    return obj.toList().map(pair -> pair._1()).array(String[].class);
+  }
+
+  static JsonValue[] values(JsonObject obj) {
+    return obj.toList().map(pair -> pair._2()).array(JsonValue[].class);
+  }
+
+  static long time(List<JsonObject> objects) {
+    Instant start = Instant.now();
+    long    found = 0;
+    for (int i = 0; i < 10; i++) {
+      for (JsonObject obj : objects) {
+        for (String name : names) {
+          found += obj.get(name).isSome() ? 1 : 0;
+        }
+      }
+    }
+    if (found == 0) {
+      throw new IllegalStateException();
+    }
+    return Duration.between(start, Instant.now()).toMillis();
+  }
+
+  static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,32 @@
+package org.kantega.kson.example;
+
+import fj.data.Stream;
+import org.kantega.kson.lens.JsonLenses;
+import org.kantega.kson.parser.JsonParser;
+import org.kantega.kson.parser.JsonProjection;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads two fields out of a 200 kB document, by parsing all of it and by parsing a projection of it.
+ */
+public class ProjectionBenchmark {
+
+  static final byte[] bytes =
+      ("{\"meta\":{\"id\":\"a1b2c3\",\"type\":\"order\",\"created\":\"2018-08-10T12:00:00Z\"},\"lines\":[" +
+          Stream.range(0, 2400)
+              .map(i -> "{\"sku\":\"SKU-" + i + "\",\"name\":\"Product number " + i + "\",\"qty\":" + (i % 7) + ",\"price\":" + (i * 1.5) + ",\"tags\":[\"x\",\"y\"]}")
+              .foldLeft1((sum, line) -> sum + "," + line) +
+          "]}").getBytes(StandardCharsets.UTF_8);
+
+  static final JsonProjection projection = JsonProjection.lenses(JsonLenses.path("meta/id"), JsonLenses.path("meta/type"));
+
+  public static void main(String[] args) {
+    System.out.println("Document of " + bytes.length / 1024 + " kB");
+    int iters = 2000;
+    for (int round = 0; round < 3; round++) {
+      AllocationBenchmark.measure("whole    ", iters, () -> JsonParser.parse(bytes).field("meta").field("id"));
+      AllocationBenchmark.measure("projected", iters, () -> JsonParser.parse(bytes, projection).field("meta").field("id"));
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package org.kantega.kson.example;
+
+import fj.data.Stream;
+import org.kantega.kson.parser.JsonParser;
+import org.kantega.kson.parser.JsonReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Skips a deep and a wide document with JsonReader.skipValue(), and compares it to parsing them whole.
+ */
+public class SkipBenchmark {
+
+  static final byte[] deep =
+      (Stream.range(0, 500).foldLeft((sum, i) -> sum + "{\"level\":" + i + ",\"name\":\"level " + i + "\",\"child\":[", "") +
+          "null" +
+          Stream.range(0, 500).foldLeft((sum, i) -> sum + "]}", "")).getBytes(StandardCharsets.UTF_8);
+
+  static final byte[] wide =
+      ("{" + Stream.range(0, 5000)
+          .map(i -> "\"field" + i + "\":{\"text\":\"Some text with an \\\"escape\\\" in it, number " + i + "\",\"value\":" + (i * 0.5) + ",\"flags\":[true,false,null]}")
+          .foldLeft1((sum, field) -> sum + "," + field) + "}").getBytes(StandardCharsets.UTF_8);
+
+  public static void main(String[] args) {
+    System.out.println("Deep document of " + deep.length / 1024 + " kB, wide document of " + wide.length / 1024 + " kB");
+    for (int round = 0; round < 3; round++) {
+      AllocationBenchmark.measure("deep, parse", 2000, () -> JsonParser.parse(deep));
+      AllocationBenchmark.measure("deep, skip ", 2000, () -> skip(deep));
+      AllocationBenchmark.measure("wide, parse", 200, () -> JsonParser.parse(wide));
+      AllocationBenchmark.measure("wide, skip ", 200, () -> skip(wide));
+    }
+  }
+
+  static void skip(byte[] bytes) {
+    try {
+      JsonReader reader = JsonReader.reader(bytes);
+      reader.nextToken();
+      reader.skipValue();
+      reader.nextToken();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package org.kantega.kson.example;
+
+import fj.data.Stream;
+import org.kantega.kson.JsonResult;
+import org.kantega.kson.json.JsonValue;
+import org.kantega.kson.parser.JsonParser;
+import org.kantega.kson.parser.JsonTape;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Looks up one value in a large document, by parsing it into JsonValues and by parsing it into a tape.
+ */
+public class TapeBenchmark {
+
+  public static void main(String[] args) {
+    String json =
+        Stream.range(0, 100000)
+            .map(i -> "{\"id\":" + i + ",\"name\":\"Person number " + i + "\",\"email\":\"person" + i + "@example.com\",\"score\":" + (i * 0.25) +
+                ",\"tags\":[\"a\",\"b\",\"c\"],\"address\":{\"street\":\"Main street " + i + "\",\"zip\":\"" + (1000 + i % 9000) + "\"}}")
+            .foldLeft((sum, obj) -> sum.append(obj).append(",\n"), new StringBuilder("[\n"))
+            .append("{}]").toString();
+    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    System.out.println("Document of " + bytes.length / (1 << 20) + " MB");
+
+    for (int round = 0; round < 5; round++) {
+      Instant               start  = Instant.now();
+      JsonResult<JsonValue> parsed = JsonParser.parse(bytes).index(54321).field("name");
+      Instant               middle = Instant.now();
+      JsonResult<JsonValue> taped  = JsonTape.parse(bytes).bind(tape -> tape.index(54321)).bind(tape -> tape.field("name")).map(JsonTape::toJsonValue);
+      Instant               end    = Instant.now();
+
+      System.out.println(
+          "Round " + round + ", JsonParser: " + Duration.between(start, middle).toMillis() + " ms, JsonTape: " + Duration.between(middle, end).toMillis() + " ms" +
+              (JsonValue.eq().eq(parsed.orThrow(), taped.orThrow()) ? "" : ", different results"));
+    }
+  }
+}
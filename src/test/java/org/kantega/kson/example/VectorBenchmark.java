@@ -0,0 +1,93 @@
+package org.kantega.kson.example;
+
+import fj.data.Stream;
+import org.kantega.kson.parser.JsonParser;
+import org.kantega.kson.parser.JsonTape;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Measures how fast utf-8 bytes are parsed, on rap.json and on larger synthetic documents. On Java 17 and later,
+ * run it once as it is and once with --add-modules jdk.incubator.vector, from the jar or with
+ * target/classes/META-INF/versions/17 on the classpath, to compare the scalar and the vector scans.
+ */
+public class VectorBenchmark {
+
+  public static void main(String[] args) throws IOException {
+    System.out.println("Vector API " + (vectorApiPresent() ? "present" : "not present"));
+
+    byte[] rap = read("/rap.json");
+    byte[] longStrings =
+        document(i -> "{\"id\":" + i + ",\"text\":\"" + repeat("Lorem ipsum dolor sit amet, consectetur adipiscing elit. ", 1 + i % 8) + "\"}");
+    byte[] indented =
+        document(i -> "{\n" + repeat(" ", 16) + "\"id\": " + i + ",\n" + repeat(" ", 16) + "\"values\": [\n" + repeat(" ", 24) + "1,\n" + repeat(" ", 24) + "2\n" + repeat(" ", 16) + "]\n" + repeat(" ", 8) + "}");
+    byte[] longNumbers =
+        document(i -> "[" + (1234567890123456789L + i) + "." + (987654321987654321L - i) + "," + i + "]");
+
+    measure("rap.json", rap, 3000);
+    measure("long strings", longStrings, 10);
+    measure("indented", indented, 10);
+    measure("long numbers", longNumbers, 10);
+  }
+
+  static void measure(String name, byte[] bytes, int iterations) {
+    for (int round = 0; round < 5; round++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < iterations; i++) {
+        JsonParser.parse(bytes).orThrow();
+      }
+      long middle = System.nanoTime();
+      for (int i = 0; i < iterations; i++) {
+        JsonTape.parse(bytes).orThrow();
+      }
+      long end = System.nanoTime();
+      if (round == 4) {
+        System.out.println(
+            name + " (" + bytes.length / 1024 + " kB), JsonParser: " + megabytesPerSecond(bytes.length * (long) iterations, middle - start) +
+                " MB/s, JsonTape: " + megabytesPerSecond(bytes.length * (long) iterations, end - middle) + " MB/s");
+      }
+    }
+  }
+
+  static byte[] document(fj.F<Integer, String> element) {
+    return Stream.range(0, 50000)
+        .map(element)
+        .foldLeft((sum, e) -> sum.append(e).append(",\n        "), new StringBuilder("[\n        "))
+        .append("{}\n]").toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  static String repeat(String s, int times) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < times; i++) {
+      sb.append(s);
+    }
+    return sb.toString();
+  }
+
+  static byte[] read(String resource) throws IOException {
+    try (InputStream in = VectorBenchmark.class.getResourceAsStream(resource)) {
+      ByteArrayOutputStream out    = new ByteArrayOutputStream();
+      byte[]                buffer = new byte[8192];
+      for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+        out.write(buffer, 0, n);
+      }
+      return out.toByteArray();
+    }
+  }
+
+  static long megabytesPerSecond(long bytes, long nanos) {
+    return bytes * 1000000000L / nanos / (1 << 20);
+  }
+
+  static boolean vectorApiPresent() {
+    try {
+      Class.forName("jdk.incubator.vector.ByteVector");
+      return true;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+}
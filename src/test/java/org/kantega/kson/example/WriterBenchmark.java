@@ -0,0 +1,51 @@
+package org.kantega.kson.example;
+
+import fj.data.Stream;
+import org.kantega.kson.json.JsonValue;
+import org.kantega.kson.parser.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.kantega.kson.json.JsonValues.*;
+
+/**
+ * Writes a large array as a String, as utf-8 bytes and to an OutputStream, and prints the bytes allocated and the
+ * time taken.
+ */
+public class WriterBenchmark {
+
+  static final JsonValue json =
+      jArray(Stream.range(0, 100000)
+          .map(i -> jObj(field("id", i), field("name", "Person number " + i), field("score", i * 0.25), field("tags", jArray(jString("a"), jBool(true)))))
+          .toList());
+
+  static final OutputStream discard = new OutputStream() {
+    @Override
+    public void write(int b) {
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+    }
+  };
+
+  public static void main(String[] args) {
+    System.out.println("Output of " + JsonWriter.write(json).length() / (1 << 20) + " MB");
+    for (int round = 0; round < 5; round++) {
+      AllocationBenchmark.measure("String       ", 5, () -> JsonWriter.write(json));
+      AllocationBenchmark.measure("pretty String", 5, () -> JsonWriter.writePretty(json));
+      AllocationBenchmark.measure("String, utf-8", 5, () -> JsonWriter.write(json).getBytes(StandardCharsets.UTF_8));
+      AllocationBenchmark.measure("utf-8        ", 5, () -> JsonWriter.writeUtf8(json));
+      AllocationBenchmark.measure("OutputStream ", 5, () -> {
+        try {
+          JsonWriter.write(json, discard);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    }
+  }
+}
@@ -13,10 +13,27 @@ import fj.test.reflect.Name;
 import fj.test.runner.PropertyTestRunner;
 import org.junit.runner.RunWith;
 import org.kantega.kson.JsonResult;
+import org.kantega.kson.json.JsonArray;
+import org.kantega.kson.json.JsonBool;
 import org.kantega.kson.json.JsonNull;
+import org.kantega.kson.json.JsonNumber;
+import org.kantega.kson.json.JsonObject;
+import org.kantega.kson.json.JsonString;
 import org.kantega.kson.json.JsonValue;
 import org.kantega.kson.json.JsonValues;
+import org.kantega.kson.lens.JsonLenses;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Supplier;
 
 import static fj.data.Enumerator.charEnumerator;
@@ -46,12 +63,23 @@ public class ParserPropertiesTest {
             .toArray().array(Character[].class)))
         .map(list -> List.asString(list.toList()));
 
+    final Gen<String> nonAsciiWithEscapes =
+      Arbitrary
+        .arbNonEmptyList(elements(
+          range(charEnumerator, 'a', 'z')
+            .append(Stream.arrayStream('\u00e6', '\u00f8', '\u00e5', '\u20ac', '\u2028', '"', '\\', '\n', '\t'))
+            .toArray().array(Character[].class)))
+        .map(list -> List.asString(list.toList()));
+
     final Gen<JsonValue> jBoolGen =
       Arbitrary.arbBoolean.map(JsonValues::jBool);
 
     final Gen<JsonValue> jStringGen =
       nonEmptyAlphanumWithspaceAndNL.map(JsonValues::jString);
 
+    final Gen<JsonValue> jUnicodeStringGen =
+      nonAsciiWithEscapes.map(JsonValues::jString);
+
     final Gen<JsonValue> jNumberGen =
       Arbitrary.arbBigDecimal.map(JsonValues::jNum);
 
@@ -73,8 +101,8 @@ public class ParserPropertiesTest {
 
     Gen<JsonValue> valueGen(int depth) {
         return lazy(() -> depth > 1 ?
-          Gen.oneOf(List.list(jBoolGen, jStringGen, jNumberGen, jObjGen(Math.min(depth - 1, 5)), jArrayGen(Math.min(depth - 1, 5)))) :
-          Gen.oneOf(List.list(jBoolGen, jStringGen, jNumberGen)));
+          Gen.oneOf(List.list(jBoolGen, jStringGen, jUnicodeStringGen, jNumberGen, jObjGen(Math.min(depth - 1, 5)), jArrayGen(Math.min(depth - 1, 5)))) :
+          Gen.oneOf(List.list(jBoolGen, jStringGen, jUnicodeStringGen, jNumberGen)));
     }
 
     Gen<JsonValue> lazy(Supplier<Gen<JsonValue>> l) {
@@ -99,4 +127,270 @@ public class ParserPropertiesTest {
           return Property.prop(JsonValue.eq().eq(json, readVal.fold(f -> jNull(), v -> v)));
       });
 
+    @Name("Any JsonValue written as utf-8 must be parsed into the same JsonValue from bytes and from a stream")
+    Property p2 =
+      Property.property(jsonGen(), json -> {
+          byte[]                bytes      = JsonWriter.writePretty(json).getBytes(StandardCharsets.UTF_8);
+          JsonResult<JsonValue> fromBytes  = JsonParser.parse(bytes);
+          JsonResult<JsonValue> fromStream = JsonParser.parse(new OneByteAtATimeStream(bytes));
+          return Property.prop(
+            JsonValue.eq().eq(json, fromBytes.fold(f -> jNull(), v -> v)) &&
+              JsonValue.eq().eq(json, fromStream.fold(f -> jNull(), v -> v)));
+      });
+
+    @Name("Reading the tokens of any JsonValue with a JsonReader must yield the same JsonValue, and skipping must reach the end")
+    Property p3 =
+      Property.property(jsonGen(), json -> {
+          String jsonString = JsonWriter.writePretty(json);
+          try {
+              JsonReader reader = JsonReader.reader(jsonString);
+              reader.nextToken();
+              JsonValue read = reader.readValue();
+
+              JsonReader skipper = JsonReader.reader(jsonString);
+              skipper.nextToken();
+              skipper.skipChildren();
+
+              return Property.prop(
+                JsonValue.eq().eq(json, read) &&
+                  reader.nextToken() == JsonToken.END_DOCUMENT &&
+                  skipper.nextToken() == JsonToken.END_DOCUMENT);
+          } catch (IOException e) {
+              return Property.prop(false);
+          }
+      });
+
+    @Name("Any JsonValue written as utf-8 must be parsed into the same JsonValue from a direct buffer and from a file mapped in small windows")
+    Property p4 =
+      Property.property(jsonGen(), json -> {
+          byte[]     bytes  = JsonWriter.writePretty(json).getBytes(StandardCharsets.UTF_8);
+          ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+          direct.put(bytes);
+          ((Buffer) direct).flip();
+          try {
+              Path file = Files.createTempFile("kson", ".json");
+              try (FileChannel channel = FileChannel.open(Files.write(file, bytes))) {
+                  JsonReader reader = new JsonReader(ByteBufferScanner.mapped(channel, 7));
+                  reader.nextToken();
+                  return Property.prop(
+                    JsonValue.eq().eq(json, JsonParser.parse(direct).fold(f -> jNull(), v -> v)) &&
+                      JsonValue.eq().eq(json, reader.readValue()) &&
+                      JsonValue.eq().eq(json, JsonParser.parse(file).fold(f -> jNull(), v -> v)));
+              } finally {
+                  Files.delete(file);
+              }
+          } catch (IOException e) {
+              return Property.prop(false);
+          }
+      });
+
+    @Name("Any list of JsonValues written as json lines must be parsed into the same values, in order, from bytes, streams, readers and in parallel, and a broken line must fail with its line number")
+    Property p5 =
+      Property.property(Arbitrary.arbList(jsonGen()), values -> {
+          String       lines = values.map(JsonWriter::write).foldLeft((sum, line) -> sum + line + "\n \r\n", "\n") + "{\"a\":\r1}\n[1,\n";
+          byte[]       bytes = lines.getBytes(StandardCharsets.UTF_8);
+          JsonValue    last  = jObj(field("a", jNum(1)));
+          String       line  = "Line " + (values.length() * 2 + 3) + ": ";
+          ForkJoinPool pool  = new ForkJoinPool(3);
+
+          List<List<JsonResult<JsonValue>>> parsed = List.list(
+            JsonLines.parse(bytes).toList(),
+            JsonLines.parse(new OneByteAtATimeStream(bytes)).toList(),
+            JsonLines.parse(new StringReader(lines)).toList(),
+            JsonLines.parseParallel(bytes, pool),
+            JsonLines.parseChunks(bytes, 0, bytes.length, JsonParser::parse, pool, 16),
+            JsonLines.parseParallel(new ByteArrayInputStream(bytes), pool).toList());
+          pool.shutdown();
+          return Property.prop(parsed.forall(results ->
+            Equal.listEqual(JsonValue.eq()).eq(values.snoc(last).snoc(jNull()), results.map(result -> result.fold(f -> jNull(), v -> v))) &&
+              results.last().fold(f -> f.startsWith(line), v -> false)));
+      });
+
+    @Name("Any array of JsonValues must be parsed into the same array in parallel, and a truncated array must fail the same way as when parsed sequentially")
+    Property p6 =
+      Property.property(Arbitrary.arbList(jsonGen()), values -> {
+          byte[]       bytes     = JsonWriter.writePretty(jArray(values)).getBytes(StandardCharsets.UTF_8);
+          byte[]       truncated = Arrays.copyOf(bytes, bytes.length / 2);
+          ForkJoinPool pool      = new ForkJoinPool(3);
+
+          JsonResult<JsonValue> parsed          = JsonParser.parseParallel(bytes, null, pool, 8);
+          JsonResult<JsonValue> parsedTruncated = JsonParser.parseParallel(truncated, null, pool, 8);
+          pool.shutdown();
+          return Property.prop(
+            JsonValue.eq().eq(jArray(values), parsed.fold(f -> jNull(), v -> v)) &&
+              parsedTruncated.toString().equals(JsonParser.parse(truncated).toString()));
+      });
+
+    @Name("Any JsonValue must be parsed into the same JsonValue when the field names are taken from a small cache")
+    Property p7 =
+      Property.property(jsonGen(), json -> {
+          String         jsonString = JsonWriter.writePretty(json);
+          byte[]         bytes      = jsonString.getBytes(StandardCharsets.UTF_8);
+          ByteBuffer     direct     = ByteBuffer.allocateDirect(bytes.length);
+          FieldNameCache names      = FieldNameCache.fieldNameCache(4);
+          direct.put(bytes);
+          ((Buffer) direct).flip();
+          return Property.prop(
+            List.list(
+              JsonParser.parse(jsonString, names),
+              JsonParser.parse(bytes, names),
+              JsonParser.parse(new OneByteAtATimeStream(bytes), names),
+              JsonParser.parse(direct, names))
+              .forall(parsed -> JsonValue.eq().eq(json, parsed.fold(f -> jNull(), v -> v))));
+      });
+
+    @Name("Any JsonValue fed in chunks of any size must be parsed into the same JsonValue, and a truncated one must fail the same way as when parsed at once")
+    Property p8 =
+      Property.property(jsonGen(), Gen.choose(1, 9), (json, chunkSize) -> {
+          byte[] bytes     = JsonWriter.writePretty(json).getBytes(StandardCharsets.UTF_8);
+          byte[] truncated = Arrays.copyOf(bytes, bytes.length / 2);
+          return Property.prop(
+            JsonValue.eq().eq(json, feedInChunks(bytes, chunkSize).fold(f -> jNull(), v -> v)) &&
+              JsonValue.eq().eq(json, feedInChunks(bytes, bytes.length).fold(f -> jNull(), v -> v)) &&
+              feedInChunks(truncated, chunkSize).toString().equals(JsonParser.parse(truncated).toString()));
+      });
+
+    @Name("Any JsonValue must be read from a tape into the same JsonValue, and a document with one byte changed must be accepted or rejected the same way as by the parser")
+    Property p9 =
+      Property.property(jsonGen(), Gen.choose(0, 1000), Gen.elements('"', '\\', '{', '}', '[', ']', ':', ',', '0', '-', '.', 'e', 't', 'u', ' ', '\u0001'), (json, at, c) -> {
+          byte[] bytes   = (" " + JsonWriter.writePretty(json) + " ").getBytes(StandardCharsets.UTF_8);
+          byte[] changed = bytes.clone();
+          changed[at % changed.length] = (byte) c.charValue();
+
+          JsonResult<JsonValue> fromTape        = JsonTape.parse(bytes, 1, bytes.length - 1).map(JsonTape::toJsonValue);
+          JsonResult<JsonValue> changedFromTape = JsonTape.parse(changed).map(JsonTape::toJsonValue);
+          JsonResult<JsonValue> changedParsed   = JsonParser.parse(changed);
+          return Property.prop(
+            JsonValue.eq().eq(json, fromTape.fold(f -> jNull(), v -> v)) &&
+              changedFromTape.toString().equals(changedParsed.toString()));
+      });
+
+    @Name("The scans of the jvm must stop at the same byte as the scalar scans, on any runs of bytes")
+    Property p10 =
+      Property.property(
+        Gen.listOf(Gen.elements(' ', '\t', '\n', '\r', '0', '9', 'a', '"', '\\', '\u0001', '\u00c3', '\u007f').bind(Gen.choose(1, 70), P.p2())),
+        Gen.choose(0, 100),
+        (runs, from) -> {
+            StringBuilder sb = new StringBuilder();
+            for (P2<Character, Integer> run : runs) {
+                for (int i = 0; i < run._2(); i++) {
+                    sb.append(run._1());
+                }
+            }
+            byte[]    bytes  = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+            int       start  = Math.min(from, bytes.length);
+            ByteScans scalar = new ByteScans();
+            ByteScans scans  = ByteScans.scans;
+            return Property.prop(
+              scans.stringEnd(bytes, start, bytes.length) == scalar.stringEnd(bytes, start, bytes.length) &&
+                scans.blanksEnd(bytes, start, bytes.length) == scalar.blanksEnd(bytes, start, bytes.length) &&
+                scans.whiteSpaceEnd(bytes, start, bytes.length) == scalar.whiteSpaceEnd(bytes, start, bytes.length) &&
+                scans.digitsEnd(bytes, start, bytes.length) == scalar.digitsEnd(bytes, start, bytes.length));
+        });
+
+    @Name("Any path of a projection must give the same value in the projected parse as in the whole value, and a document with one byte changed must fail the same way")
+    Property p11 =
+      Property.property(jsonGen(), Gen.choose(0, 1000), Gen.choose(0, 1000), Gen.elements('"', '{', '}', ']', ':', ',', '0', 'x', '\\'), (json, pick, at, c) -> {
+          List<String>   paths      = paths(json, "");
+          List<String>   projected  = paths.isEmpty() ? List.nil() : List.list(paths.index(pick % paths.length()), paths.index(pick * 7 % paths.length()));
+          JsonProjection projection = JsonProjection.paths(projected.toJavaList().toArray(new String[0]));
+          byte[]         bytes      = JsonWriter.writePretty(json).getBytes(StandardCharsets.UTF_8);
+          byte[]         changed    = bytes.clone();
+          changed[at % changed.length] = (byte) c.charValue();
+
+          JsonValue sparse = JsonParser.parse(bytes, projection).fold(f -> jNull(), v -> v);
+          return Property.prop(
+            projected.forall(path -> JsonLenses.path(path).get(sparse).toString().equals(JsonLenses.path(path).get(json).toString())) &&
+              JsonParser.parse(changed, projection).fold(f -> f, v -> "").equals(JsonParser.parse(changed).fold(f -> f, v -> "")));
+      });
+
+    @Name("Skipping the values of any JsonValue with a JsonReader must reach the end, and a document with one byte changed must fail the same way as when it is parsed")
+    Property p12 =
+      Property.property(jsonGen(), Gen.choose(0, 1000), Gen.elements('"', '{', '}', '[', ']', ':', ',', '0', 'x', '\\', '\u0001'), (json, at, c) -> {
+          byte[] bytes   = JsonWriter.writePretty(json).getBytes(StandardCharsets.UTF_8);
+          byte[] changed = bytes.clone();
+          changed[at % changed.length] = (byte) c.charValue();
+          return Property.prop(
+            skipFields(bytes).equals("") &&
+              skipFields(changed).equals(JsonParser.parse(changed).fold(f -> f, v -> "")));
+      });
+
+    @Name("The utf-8 written directly for any JsonValue must be the bytes of the written String")
+    Property p13 =
+      Property.property(jsonGen(), json ->
+        Property.prop(
+          Arrays.equals(JsonWriter.writeUtf8(json), JsonWriter.write(json).getBytes(StandardCharsets.UTF_8)) &&
+            Arrays.equals(JsonWriter.writePrettyUtf8(json), JsonWriter.writePretty(json).getBytes(StandardCharsets.UTF_8))));
+
+    @Name("Any JsonValue must be equal to, and have the hash code of, its parsed copy and its copy kept in TreeMaps, Seqs and text")
+    Property p14 =
+      Property.property(jsonGen(), json -> {
+          JsonValue parsed = JsonParser.parse(JsonWriter.writeUtf8(json)).orThrow();
+          JsonValue copy   = copy(json);
+          return Property.prop(
+            json.equals(parsed) && parsed.equals(copy) && copy.equals(json) &&
+              json.hashCode() == parsed.hashCode() && parsed.hashCode() == copy.hashCode());
+      });
+
+    static JsonValue copy(JsonValue json) {
+        return json.fold(
+          JsonNull::new,
+          JsonBool::new,
+          number -> new JsonNumber(number.value()),
+          JsonString::new,
+          array -> new JsonArray(array.seq().map(ParserPropertiesTest::copy)),
+          obj -> new JsonObject(obj.pairs().map(ParserPropertiesTest::copy)));
+    }
+
+    /**
+     * Skips the value of every field at the top level, and the whole value otherwise, and gives the failure, if any
+     */
+    static String skipFields(byte[] bytes) {
+        try {
+            JsonReader reader = JsonReader.reader(bytes);
+            if (reader.nextToken() == JsonToken.START_OBJECT) {
+                while (reader.nextToken() == JsonToken.FIELD_NAME) {
+                    reader.skipValue();
+                }
+            } else {
+                reader.skipValue();
+            }
+            reader.nextToken();
+            return "";
+        } catch (ParseFailure f) {
+            return JsonParser.<JsonValue>parseFailure(f).fold(failure -> failure, v -> "");
+        } catch (IOException e) {
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * The paths of all the fields of the value, through objects only
+     */
+    static List<String> paths(JsonValue json, String prefix) {
+        return json.asObject().fold(
+          f -> List.nil(),
+          obj -> obj.toList().bind(field -> paths(field._2(), prefix + field._1() + "/").cons(prefix + field._1())));
+    }
+
+    static JsonResult<JsonValue> feedInChunks(byte[] bytes, int chunkSize) {
+        JsonFeedParser parser = JsonFeedParser.feedParser(FieldNameCache.fieldNameCache(4));
+        for (int i = 0; i < bytes.length; i += chunkSize) {
+            parser.feed(ByteBuffer.wrap(bytes, i, Math.min(chunkSize, bytes.length - i)));
+        }
+        return parser.endOfInput();
+    }
+
+    static class OneByteAtATimeStream extends ByteArrayInputStream {
+
+        OneByteAtATimeStream(byte[] buf) {
+            super(buf);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, 1));
+        }
+    }
+
 }
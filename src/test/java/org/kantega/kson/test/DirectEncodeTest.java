@@ -0,0 +1,88 @@
+package org.kantega.kson.test;
+
+import fj.Ord;
+import fj.P;
+import fj.P3;
+import fj.data.List;
+import fj.data.Option;
+import fj.data.Stream;
+import fj.data.TreeMap;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kantega.kson.codec.JsonEncoder;
+import org.kantega.kson.json.JsonObject;
+import org.kantega.kson.json.JsonValue;
+import org.kantega.kson.parser.JsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+
+import static org.kantega.kson.codec.JsonEncoders.*;
+import static org.kantega.kson.json.JsonValues.jString;
+
+public class DirectEncodeTest {
+
+    final JsonEncoder<P3<String, Option<Integer>, List<String>>> personEncoder =
+      obj(
+        field("name", stringEncoder),
+        field("age", optionEncoder(integerEncoder)),
+        field("tags", arrayEncoder(stringEncoder)));
+
+    final List<P3<String, Option<Integer>, List<String>>> people =
+      List.list(
+        P.p("Ola", Option.some(42), List.list("a", "b")),
+        P.p("K\u00e5ri \" \"", Option.none(), List.nil()),
+        P.p("", Option.some(-1), List.list("\u0001\ud83d\ude00")));
+
+    @Test
+    public void directEncodingWritesTheSameAsWritingTheTree() throws IOException {
+        assertSame(personEncoder, people);
+        assertSame(arrayEncoder(personEncoder), List.list(people, List.nil()));
+        assertSame(obj(field("b", stringEncoder), field("a", stringEncoder), field("b", stringEncoder.contramap(text -> text.toUpperCase()))), List.list(P.p("x", "y", "z")));
+        assertSame(obj(field("z", bigDecimalEncoder), (BigDecimal number) -> number.negate()), List.list(new BigDecimal("1.50"), new BigDecimal("1e400")));
+        assertSame(fieldsEncoder(optionEncoder(boolEncoder)), List.single(TreeMap.<String, Option<Boolean>>empty(Ord.stringOrd).set("y", Option.some(true)).set("x", Option.none())));
+        assertSame(obj((JsonObject obj, String text) -> obj.withField("custom", jString(text)), field("after", stringEncoder), (String text) -> P.p(text, text)), List.list("mixed"));
+        assertSame(obj(field("empty", obj((JsonObject obj, String text) -> obj))), List.list("nothing"));
+        assertSame(obj(field("n\u00e6vn", stringEncoder), field("\ud83d\ude00", stringEncoder)), List.list(P.p("a", "b")));
+    }
+
+    @Test
+    public void namesLongerThanTheBufferAreWrittenWhole() throws IOException {
+        String name = Stream.range(0, 10000).map(i -> i % 100 == 0 ? "\u00e6" : "n").foldLeft(String::concat, "");
+        JsonEncoder<String> encoder = obj(field(name, stringEncoder));
+        StringWriter writer = new StringWriter();
+        JsonWriter.write("value", encoder, writer);
+
+        Assert.assertEquals(JsonWriter.write(encoder.encode("value")), writer.toString());
+        assertSame(encoder, List.list("value"));
+    }
+
+    private <A> void assertSame(JsonEncoder<A> encoder, List<A> values) throws IOException {
+        for (A a : values) {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            JsonWriter.write(a, encoder, stream);
+
+            Assert.assertEquals(JsonWriter.write(encoder.encode(a)), JsonWriter.write(a, encoder));
+            Assert.assertEquals(JsonWriter.writePretty(encoder.encode(a)), JsonWriter.writePretty(a, encoder));
+            Assert.assertArrayEquals(JsonWriter.writeUtf8(encoder.encode(a)), stream.toByteArray());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void valuesInObjectsMustHaveNames() {
+        JsonWriter.write("no name", new JsonEncoder<String>() {
+            @Override
+            public JsonValue encode(String text) {
+                return jString(text);
+            }
+
+            @Override
+            public void encode(String text, JsonWriter writer) throws IOException {
+                writer.writeStartObject();
+                writer.writeString(text);
+            }
+        });
+    }
+}
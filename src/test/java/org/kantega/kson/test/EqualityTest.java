@@ -0,0 +1,36 @@
+package org.kantega.kson.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kantega.kson.json.JsonNumber;
+import org.kantega.kson.json.JsonValue;
+import org.kantega.kson.parser.JsonParser;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.kantega.kson.json.JsonValues.*;
+
+public class EqualityTest {
+
+    @Test
+    public void equalValuesAreKeptOnceInAHashSet() {
+        Set<JsonValue> values = new HashSet<>();
+        values.add(JsonParser.parse("{\"id\":1,\"tags\":[\"a\",null],\"score\":1.50}").orThrow());
+        values.add(JsonParser.parse("{\"score\":1.50,\"tags\":[\"a\",null],\"id\":1}").orThrow());
+        values.add(jObj(field("id", jNum(1L)), field("tags", jArray(jString("a"), jNull())), field("score", jNum("1.50"))));
+        values.add(JsonParser.parse("{\"id\":1,\"tags\":[\"a\",null],\"score\":1.5}").orThrow());
+        values.add(JsonParser.parse("{\"id\":1,\"tags\":[null,\"a\"],\"score\":1.50}").orThrow());
+
+        Assert.assertEquals(3, values.size());
+    }
+
+    @Test
+    public void numbersWithExponentsTooLargeForABigDecimalAreEqualByTheirText() {
+        JsonValue huge = new JsonNumber("1e9999999999");
+
+        Assert.assertEquals(huge, new JsonNumber("1e9999999999"));
+        Assert.assertEquals(huge.hashCode(), new JsonNumber("1e9999999999").hashCode());
+        Assert.assertNotEquals(huge, jNum(1L));
+    }
+}
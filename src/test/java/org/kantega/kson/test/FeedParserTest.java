@@ -0,0 +1,41 @@
+package org.kantega.kson.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kantega.kson.JsonResult;
+import org.kantega.kson.json.JsonValue;
+import org.kantega.kson.parser.JsonFeedParser;
+import org.kantega.kson.parser.JsonParser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class FeedParserTest {
+
+    @Test
+    public void tokensSplitBetweenChunksAreJoined() {
+        StringBuilder longString = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            longString.append("æ€\\n");
+        }
+        byte[]         bytes  = ("{\"text\": \"" + longString + "\", \"n\": [12345.678, true, null]}").getBytes(StandardCharsets.UTF_8);
+        JsonFeedParser parser = JsonFeedParser.feedParser();
+        for (byte b : bytes) {
+            parser.feed(ByteBuffer.wrap(new byte[]{b}));
+        }
+        JsonResult<JsonValue> json = parser.endOfInput();
+
+        Assert.assertTrue(JsonValue.eq().eq(JsonParser.parse(bytes).orThrow(), json.orThrow()));
+        Assert.assertEquals(12345.678, json.field("n").index(0).asNumber().orThrow().doubleValue(), 0);
+    }
+
+    @Test
+    public void errorsAreFoundBeforeTheEndOfInput() {
+        JsonFeedParser parser = JsonFeedParser.feedParser();
+        parser.feed("[1, 2".getBytes(StandardCharsets.UTF_8));
+        Assert.assertFalse(parser.hasFailed());
+        parser.feed(" x".getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(parser.hasFailed());
+        Assert.assertEquals(JsonParser.parse("[1, 2 x]").toString(), parser.endOfInput().toString());
+    }
+}
@@ -0,0 +1,32 @@
+package org.kantega.kson.test;
+
+import fj.data.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kantega.kson.json.JsonValue;
+import org.kantega.kson.parser.FieldNameCache;
+import org.kantega.kson.parser.JsonParser;
+
+import java.nio.charset.StandardCharsets;
+
+public class FieldNameCacheTest {
+
+    @Test
+    public void repeatedNamesAreTheSameInstance() {
+        FieldNameCache names = FieldNameCache.fieldNameCache();
+        String         json  = "[{\"name\":\"a\",\"id\":1},{\"id\":2,\"name\":\"b\"}]";
+
+        List<String> fromString = fieldNames(JsonParser.parse(json, names).orThrow());
+        List<String> fromBytes  = fieldNames(JsonParser.parse(json.getBytes(StandardCharsets.UTF_8), names).orThrow());
+
+        Assert.assertEquals(List.list("id", "name", "id", "name"), fromString);
+        Assert.assertSame(fromString.index(0), fromString.index(2));
+        Assert.assertSame(fromString.index(1), fromString.index(3));
+        Assert.assertSame(fromString.index(0), fromBytes.index(0));
+        Assert.assertSame(fromString.index(1), fromBytes.index(3));
+    }
+
+    private static List<String> fieldNames(JsonValue json) {
+        return json.onArray(values -> values.bind(value -> value.onObject(fields -> fields.keys()).orSome(List.nil()))).orSome(List.nil());
+    }
+}
@@ -0,0 +1,71 @@
+package org.kantega.kson.test;
+
+import fj.data.List;
+import fj.data.Option;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kantega.kson.JsonResult;
+import org.kantega.kson.codec.JsonDecoder;
+import org.kantega.kson.parser.JsonParser;
+
+import static org.kantega.kson.codec.JsonDecoders.*;
+
+public class FusedDecodeTest {
+
+    final JsonDecoder<String> personDecoder =
+      obj(
+        field("name", stringDecoder),
+        optionalField("age", intDecoder),
+        field("tags", arrayDecoder(stringDecoder)),
+        (name, age, tags) -> name + age + tags);
+
+    final List<String> documents =
+      List.list(
+        "{\"name\":\"Ola\",\"age\":42,\"tags\":[\"a\",\"b\"]}",
+        "{\"name\":\"Ola\",\"age\":null,\"tags\":[],\"other\":{\"deep\":[1,2,{\"x\":true}]}}",
+        "{\"tags\":[\"a\"],\"name\":\"Kari\"}",
+        "{\"name\":\"Ola\",\"name\":\"Kari\",\"tags\":[]}",
+        "{\"name\":1,\"tags\":[]}",
+        "{\"name\":\"Ola\",\"tags\":[1,\"b\",false]}",
+        "{\"age\":\"old\"}",
+        "[\"not\",\"an\",\"object\"]",
+        "{\"name\":\"Ola\",\"tags\":[]",
+        "{\"name\":1,\"tags\":[] x",
+        "  \"just a string\"  ");
+
+    @Test
+    public void fusedDecodingYieldsTheSameResultsAsDecodingTheTree() {
+        assertSame(personDecoder);
+        assertSame(obj(field("name", stringDecoder), field("name", stringDecoder.map(String::length))));
+        assertSame(optionDecoder(fieldsDecoder(arrayDecoder(stringDecoder))));
+        assertSame(obj(field("tags", arrayDecoder(stringDecoder))).map(tags -> tags.length()));
+        assertSame(optionDecoder(obj(optionalField("age", intDecoder).map(age -> age.orSome(0)))));
+        assertSame(obj(field("name", stringDecoder).or(field("age", intDecoder.map(String::valueOf)))));
+        assertSame(obj(field("name", stringDecoder), fields -> JsonResult.success(fields.keys())));
+        assertSame(fieldsDecoder(boolDecoder).ensure(map -> map.size() > 1, "more than one field"));
+    }
+
+    @Test
+    public void decodersCanParseWhileTheyAreBeingParsed() {
+        JsonDecoder<String> embedded = stringDecoder.bind(text -> v -> JsonParser.parse(text, personDecoder));
+        String              json     = "{\"doc\":\"{\\\"name\\\":\\\"Ola\\\",\\\"tags\\\":[]}\", \"after\":[1,2,3]}";
+
+        Assert.assertEquals("OlaNoneList()", JsonParser.parse(json, obj(field("doc", embedded))).orThrow());
+        Assert.assertEquals(List.list(1, 2, 3), JsonParser.parse(json, obj(field("doc", embedded), field("after", arrayDecoder(intDecoder)), (doc, after) -> after)).orThrow());
+    }
+
+    private <A> void assertSame(JsonDecoder<A> decoder) {
+        documents.foreachDoEffect(json ->
+          Assert.assertEquals(
+            json,
+            JsonParser.parse(json).decode(decoder).toString(),
+            JsonParser.parse(json, decoder).toString()));
+    }
+
+    @Test
+    public void optionalFieldsAreDecodedFromTheTokens() {
+        Assert.assertEquals(
+          Option.some(42),
+          JsonParser.parse("{\"age\":42}", obj(optionalField("age", intDecoder))).orThrow());
+    }
+}
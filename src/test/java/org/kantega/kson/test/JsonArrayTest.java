@@ -0,0 +1,61 @@
+package org.kantega.kson.test;
+
+import fj.data.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kantega.kson.JsonResult;
+import org.kantega.kson.json.JsonArray;
+import org.kantega.kson.json.JsonValue;
+import org.kantega.kson.parser.JsonParser;
+
+import static org.kantega.kson.codec.JsonDecoders.*;
+import static org.kantega.kson.json.JsonValues.*;
+
+public class JsonArrayTest {
+
+    @Test
+    public void parsedArraysCanBeIndexed() {
+        JsonResult<JsonValue> json = JsonParser.parse("[1, [2, 3], \"four\", [], {\"five\": [5]}]");
+
+        Assert.assertEquals(3, (long) json.index(1).index(1).asLong().orThrow());
+        Assert.assertEquals("four", json.indexAsString(2).orThrow());
+        Assert.assertEquals("Not an array", json.index(0).index(0).toValidation().fail());
+        Assert.assertTrue(json.index(5).toOption().isNone());
+        Assert.assertEquals(List.list(5), json.decode(arrayIndexDecoder(4, obj(field("five", arrayDecoder(intDecoder))))).orThrow());
+    }
+
+    @Test
+    public void appendedArraysAreTheSameAsConstructedOnes() {
+        JsonArray appended = JsonArray.empty;
+        for (int i = 0; i < 100; i++) {
+            appended = appended.append(jNum(i));
+        }
+        JsonArray constructed = new JsonArray(List.range(0, 100).map(i -> jNum(i)));
+
+        Assert.assertTrue(JsonArray.eq.eq(appended, constructed));
+        Assert.assertEquals(100, appended.length());
+        Assert.assertEquals(42, appended.get(42).asLong().orThrow().longValue());
+        Assert.assertEquals(constructed.toString(), appended.toString());
+    }
+
+    @Test
+    public void decodedArraysKeepTheOrderAndGiveTheLastFailure() {
+        String json = "[\"a\", 1, \"b\", true, \"c\"]";
+
+        Assert.assertEquals(
+          List.list("a", "b", "c"),
+          JsonResult.sequence(List.list(JsonResult.success("a"), JsonResult.success("b"), JsonResult.success("c"))).orThrow());
+        Assert.assertEquals(
+          "second",
+          JsonResult.sequence(List.list(JsonResult.success("a"), JsonResult.fail("first"), JsonResult.success("b"), JsonResult.fail("second"))).toValidation().fail());
+
+        Assert.assertEquals(List.list("a", "b", "c"), JsonParser.parse("[\"a\", \"b\", \"c\"]", arrayDecoder(stringDecoder)).orThrow());
+        Assert.assertEquals(List.list("a", "b", "c"), JsonParser.parse("[\"a\", \"b\", \"c\"]").decode(arrayDecoder(stringDecoder)).orThrow());
+        Assert.assertEquals(
+          JsonParser.parse(json).index(3).bind(JsonValue::asText).toValidation().fail(),
+          JsonParser.parse(json, arrayDecoder(stringDecoder)).toValidation().fail());
+        Assert.assertEquals(
+          JsonParser.parse(json, arrayDecoder(stringDecoder)).toString(),
+          JsonParser.parse(json).decode(arrayDecoder(stringDecoder)).toString());
+    }
+}
@@ -0,0 +1,45 @@
+package org.kantega.kson.test;
+
+import fj.P;
+import fj.P2;
+import fj.data.List;
+import fj.data.TreeMap;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kantega.kson.json.JsonObject;
+import org.kantega.kson.json.JsonValue;
+import org.kantega.kson.parser.JsonParser;
+import org.kantega.kson.parser.JsonWriter;
+
+import static org.kantega.kson.json.JsonValues.*;
+
+public class JsonObjectTest {
+
+    @Test
+    public void objectsOfAllSizesAreTheSameAsTreeMaps() {
+        for (int size : new int[]{0, 1, 5, 8, 9, 20, 32, 33, 100}) {
+            List<P2<String, JsonValue>> fields =
+              List.range(0, size).map(i -> P.p("f" + (i * 7919 % 101), jNum(i)));
+            JsonObject                 object = JsonObject.JsonObject(fields);
+            TreeMap<String, JsonValue> map    = TreeMap.iterableTreeMap(JsonObject.fieldNameOrd, fields);
+
+            Assert.assertTrue(JsonObject.eq.eq(object, new JsonObject(map)));
+            Assert.assertEquals(map.size(), object.size());
+            Assert.assertEquals(new JsonObject(map).toString(), object.toString());
+            fields.foreachDoEffect(field -> Assert.assertEquals(field._2(), object.get(field._1()).some()));
+            Assert.assertTrue(object.get("f").isNone());
+
+            JsonObject added = object.withField("f", jString("new")).withField("f0", jBool(true));
+            Assert.assertTrue(JsonObject.eq.eq(added, new JsonObject(map.set("f", jString("new")).set("f0", jBool(true)))));
+        }
+    }
+
+    @Test
+    public void lastDuplicateFieldWins() {
+        String json = "{\"b\":1,\"a\":2,\"b\":3,\"c\":{},\"a\":4}";
+
+        Assert.assertEquals("{\"a\":4,\"b\":3,\"c\":{}}", JsonWriter.write(JsonParser.parse(json).orThrow()));
+        Assert.assertEquals(3, (long) JsonParser.parse(json).field("b").asLong().orThrow());
+        Assert.assertEquals("Field d not found", JsonParser.parse(json).field("d").toValidation().fail());
+    }
+}
@@ -0,0 +1,89 @@
+package org.kantega.kson.test;
+
+import fj.F;
+import fj.data.List;
+import fj.data.Option;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kantega.kson.json.JsonArray;
+import org.kantega.kson.json.JsonNumber;
+import org.kantega.kson.json.JsonValue;
+import org.kantega.kson.parser.JsonParser;
+import org.kantega.kson.parser.JsonWriter;
+
+import static org.kantega.kson.codec.JsonDecoders.*;
+import static org.kantega.kson.json.JsonValues.*;
+
+public class KindTest {
+
+    final JsonValue text =
+      new JsonValue() {
+          @Override
+          public <T> Option<T> onString(F<String, T> f) {
+              return Option.some(f.f("text"));
+          }
+      };
+
+    @Test
+    public void parsedValuesHaveTheirKind() {
+        JsonArray values = (JsonArray) JsonParser.parse("[null, true, 1.5, \"a\", [], {}]").orThrow();
+
+        Assert.assertEquals(JsonValue.Kind.NULL, values.get(0).kind());
+        Assert.assertEquals(JsonValue.Kind.BOOL, values.get(1).kind());
+        Assert.assertEquals(JsonValue.Kind.NUMBER, values.get(2).kind());
+        Assert.assertEquals(JsonValue.Kind.STRING, values.get(3).kind());
+        Assert.assertEquals(JsonValue.Kind.ARRAY, values.get(4).kind());
+        Assert.assertEquals(JsonValue.Kind.OBJECT, values.get(5).kind());
+        Assert.assertEquals("null true 1.5 a 0 0", values.values().map(KindTest::describe).foldLeft1((one, other) -> one + " " + other));
+    }
+
+    @Test
+    public void valuesOfOtherSubclassesAreSeenByTheirOnMethods() {
+        Assert.assertEquals(JsonValue.Kind.OTHER, text.kind());
+        Assert.assertEquals("text", describe(text));
+        Assert.assertTrue(JsonValue.eq().eq(text, jString("text")));
+        Assert.assertEquals("[\"text\"]", JsonWriter.write(jArray(text)));
+        Assert.assertEquals(Option.none(), optionDecoder(stringDecoder).decode(jNull()).orThrow());
+    }
+
+    @Test
+    public void arraysOfOtherSubclassesCanBeIndexed() {
+        JsonValue pair =
+          new JsonValue() {
+              @Override
+              public <T> Option<T> onArray(F<List<JsonValue>, T> f) {
+                  return Option.some(f.f(List.list(jString("a"), jString("b"))));
+              }
+          };
+
+        Assert.assertEquals("b", pair.index(1).bind(JsonValue::asText).orThrow());
+        Assert.assertEquals("b", arrayIndexDecoder(1, stringDecoder).decode(pair).orThrow());
+        Assert.assertFalse(arrayIndexDecoder(2, stringDecoder).decode(pair).isSuccess());
+        Assert.assertFalse(pair.index(2).isSuccess());
+        Assert.assertFalse(text.index(0).isSuccess());
+    }
+
+    @Test
+    public void valuesOfNoKindAreWrittenAsNull() {
+        Assert.assertEquals("[null,1]", JsonWriter.write(jArray(new JsonValue() {}, jNum(1))));
+    }
+
+    @Test
+    public void numbersAreEqualWhenTheirBigDecimalsAre() {
+        Assert.assertTrue(JsonValue.eq().eq(jNum(5L), new JsonNumber("5")));
+        Assert.assertTrue(JsonValue.eq().eq(jNum("1.50"), new JsonNumber("1.50")));
+        Assert.assertTrue(JsonValue.eq().eq(jNum(1.5), jNum("1.5")));
+        Assert.assertFalse(JsonValue.eq().eq(jNum("1.50"), jNum("1.5")));
+        Assert.assertFalse(JsonValue.eq().eq(jNum(5L), jString("5")));
+    }
+
+    private static String describe(JsonValue value) {
+        return value.fold(
+          () -> "null",
+          String::valueOf,
+          JsonNumber::value,
+          text -> text,
+          array -> String.valueOf(array.length()),
+          obj -> String.valueOf(obj.size()));
+    }
+}
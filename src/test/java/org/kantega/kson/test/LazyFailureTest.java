@@ -0,0 +1,47 @@
+package org.kantega.kson.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kantega.kson.JsonResult;
+import org.kantega.kson.json.JsonValue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.kantega.kson.codec.JsonDecoders.*;
+
+public class LazyFailureTest {
+
+    final AtomicInteger rendered = new AtomicInteger();
+
+    final JsonValue value =
+      new JsonValue() {
+          @Override
+          public String toString() {
+              rendered.incrementAndGet();
+              return "value";
+          }
+      };
+
+    @Test
+    public void failuresThatAreRecoveredFromAreNotRendered() {
+        Assert.assertEquals("default", value.asText().mapFail(message -> "Wrapped: " + message).map(String::trim).orElse(() -> "default"));
+        Assert.assertFalse(arrayDecoder(stringDecoder).decode(value).toOption().isSome());
+        Assert.assertFalse(value.asObject().bind(obj -> obj.field("name")).toOption().isSome());
+        Assert.assertEquals(0, rendered.get());
+    }
+
+    @Test
+    public void failureMessagesAreRenderedOnce() {
+        JsonResult<String> text = value.asText().mapFail(message -> "Wrapped: " + message);
+
+        Assert.assertEquals("JsonResult{Wrapped: value is not a string}", text.toString());
+        Assert.assertEquals("Wrapped: value is not a string", text.toValidation().fail());
+        Assert.assertEquals(1, rendered.get());
+    }
+
+    @Test
+    public void failuresWithAGivenMessageCanBeMadeWithNull() {
+        Assert.assertFalse(JsonResult.fail(null).isSuccess());
+        Assert.assertEquals("JsonResult{value is not a string}", JsonResult.failLazy(() -> value + " is not a string").toString());
+    }
+}
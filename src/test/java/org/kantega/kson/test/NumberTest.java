@@ -0,0 +1,88 @@
+package org.kantega.kson.test;
+
+import fj.data.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kantega.kson.JsonResult;
+import org.kantega.kson.json.JsonNumber;
+import org.kantega.kson.json.JsonValues;
+import org.kantega.kson.parser.JsonParser;
+import org.kantega.kson.parser.JsonTape;
+import org.kantega.kson.util.Numbers;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.kantega.kson.codec.JsonDecoders.*;
+
+public class NumberTest {
+
+    final List<String> literals =
+      List.list(
+        "0", "-0", "0.0", "-0.0", "0.000000", "0.0000000", "0.000001", "0.0000001", "7", "-42", "1.50", "123.456",
+        "0.1", "0.3", "4.35", "-2.5e3", "1E+2", "1e-400", "1e400", "123456789012345.6", "1234567890123456789.5",
+        "9223372036854775807", "9223372036854775808", "-9223372036854775808", "2147483648", "99999999999999999999",
+        "0.0000000000000000000001", "17.0000000000000000000001");
+
+    @Test
+    public void primitivesAreTheSameAsFromBigDecimal() {
+        literals.foreachDoEffect(literal -> {
+            BigDecimal decimal = new BigDecimal(literal);
+            Assert.assertEquals(literal, decimal.longValue(), Numbers.longValue(literal));
+            Assert.assertEquals(literal, decimal.intValue(), Numbers.intValue(literal));
+            Assert.assertEquals(literal, Double.doubleToLongBits(decimal.doubleValue()), Double.doubleToLongBits(Numbers.doubleValue(literal)));
+        });
+    }
+
+    @Test
+    public void parsedNumbersKeepTheTextOfTheirBigDecimal() {
+        literals.foreachDoEffect(literal -> {
+            JsonNumber number = (JsonNumber) JsonValues.jNum(literal);
+            Assert.assertEquals(literal, new BigDecimal(literal).toString(), number.value());
+            Assert.assertEquals(literal, new BigDecimal(literal), number.bigDecimalValue());
+        });
+    }
+
+    @Test
+    public void primitiveNumbersAreTheSameAsNumbersKeptAsText() {
+        List<JsonNumber> numbers =
+          literals.map(literal -> (JsonNumber) JsonValues.jNum(literal))
+            .append(List.list(0L, -1L, 42L, Long.MAX_VALUE, Long.MIN_VALUE).map(n -> (JsonNumber) JsonValues.jNum(n)))
+            .append(List.list(0.0, -0.0, 0.1, -2.5, 1e10, 1.0E-5, 123456.789, 9.3e18, -1e300, Math.pow(2, 60), -Math.pow(2, 62) - 1024, 0x1p53 + 2, 0x1p53 - 1).map(d -> (JsonNumber) JsonValues.jNum(d)));
+        numbers.foreachDoEffect(number -> {
+            JsonNumber text = new JsonNumber(number.value());
+            Assert.assertTrue(number.value(), JsonNumber.eq.eq(text, number));
+            Assert.assertEquals(number.value(), text.bigDecimalValue(), number.bigDecimalValue());
+            Assert.assertEquals(number.value(), text.longValue(), number.longValue());
+            Assert.assertEquals(number.value(), text.intValue(), number.intValue());
+            Assert.assertEquals(number.value(), Double.doubleToLongBits(text.doubleValue()), Double.doubleToLongBits(number.doubleValue()));
+        });
+        Assert.assertEquals("1.0E10", ((JsonNumber) JsonValues.jNum(1e10)).value());
+    }
+
+    @Test
+    public void numbersAreDecodedToPrimitives() {
+        String json = "[1, 2.5, -3e2, 9223372036854775807]";
+        Assert.assertEquals(List.list(1, 2, -300, -1), JsonParser.parse(json, arrayDecoder(intDecoder)).orThrow());
+        Assert.assertEquals(List.list(1L, 2L, -300L, Long.MAX_VALUE), JsonParser.parse(json).decode(arrayDecoder(longDecoder)).orThrow());
+        Assert.assertEquals(List.list(1.0, 2.5, -300.0, 9.223372036854776E18), JsonParser.parse(json, arrayDecoder(doubleDecoder)).orThrow());
+        Assert.assertEquals(Long.MAX_VALUE, (long) JsonParser.parse(json).index(3).asLong().orThrow());
+    }
+
+    @Test
+    public void literalsWithoutABigDecimalFailToParse() {
+        List.list("1e99999999999", "1e2147483647", "1e2147483648", "1e-2147483648", "1.5e-2147483647", "1.5e-2147483646", "-0.0e00000000002147483647")
+          .foreachDoEffect(literal -> {
+              boolean hasBigDecimal = JsonResult.tried(() -> new BigDecimal(literal)).isSuccess();
+              String  json          = "[" + literal + "]";
+              byte[]  bytes         = json.getBytes(StandardCharsets.UTF_8);
+              Assert.assertEquals(literal, hasBigDecimal, JsonParser.parse(json).isSuccess());
+              Assert.assertEquals(literal, hasBigDecimal, JsonParser.parse(bytes).isSuccess());
+              Assert.assertEquals(literal, hasBigDecimal, JsonParser.parse(bytes, arrayDecoder(bigDecimalDecoder)).isSuccess());
+              Assert.assertEquals(literal, hasBigDecimal, JsonTape.parse(bytes).isSuccess());
+              if (hasBigDecimal) {
+                  Assert.assertEquals(literal, new BigDecimal(literal).toString(), ((JsonNumber) JsonParser.parse(json).orThrow().index(0).orThrow()).value());
+              }
+          });
+    }
+}
@@ -0,0 +1,51 @@
+package org.kantega.kson.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kantega.kson.JsonResult;
+import org.kantega.kson.json.JsonValue;
+import org.kantega.kson.lens.JsonLenses;
+import org.kantega.kson.lens.JsonValueLens;
+import org.kantega.kson.parser.JsonParser;
+import org.kantega.kson.parser.JsonProjection;
+
+public class ProjectionTest {
+
+    static final String json =
+      "{\"meta\": {\"id\": 7, \"type\": \"order\", \"trace\": [1, 2, 3]}, \"items\": [{\"sku\": \"a\", \"qty\": 1}, {\"sku\": \"b\", \"qty\": 2}], \"body\": {\"text\": \"\\u00e6\"}}";
+
+    @Test
+    public void onlyTheProjectedFieldsAreKept() {
+        JsonResult<JsonValue> sparse = JsonParser.parse(json, JsonProjection.paths("meta/id", "items/sku"));
+
+        Assert.assertEquals(
+          JsonParser.parse("{\"meta\": {\"id\": 7}, \"items\": [{\"sku\": \"a\"}, {\"sku\": \"b\"}]}").toString(),
+          sparse.toString());
+    }
+
+    @Test
+    public void lensesMadeFromFieldsDeclareTheirPaths() {
+        JsonValueLens id   = JsonLenses.path("meta/id");
+        JsonValueLens type = JsonLenses.field("meta").select("type");
+
+        JsonResult<JsonValue> sparse = JsonParser.parse(json, JsonProjection.lenses(id, type));
+
+        Assert.assertEquals(7, id.get(sparse.orThrow()).orThrow().asNumber().orThrow().intValue());
+        Assert.assertEquals("order", type.get(sparse.orThrow()).orThrow().asText().orThrow());
+        Assert.assertFalse(sparse.containsField("body"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lensesWithoutPathsAreRejected() {
+        JsonProjection.lenses(JsonLenses.arrayLens(list -> JsonResult.success(list.head()), (a, list) -> list.cons(a)));
+    }
+
+    @Test
+    public void skippedValuesAreChecked() {
+        String broken = "{\"meta\": {\"id\": 7}, \"body\": {\"text\": \"\\x\"}}";
+
+        Assert.assertEquals(
+          JsonParser.parse(broken).toString(),
+          JsonParser.parse(broken, JsonProjection.paths("meta/id")).toString());
+    }
+}
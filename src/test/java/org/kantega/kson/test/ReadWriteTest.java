@@ -1,13 +1,28 @@
 package org.kantega.kson.test;
 
+import fj.data.Stream;
 import org.junit.Assert;
 import org.junit.Test;
 import org.kantega.kson.JsonResult;
 import org.kantega.kson.json.JsonObject;
 import org.kantega.kson.json.JsonValue;
 import org.kantega.kson.parser.JsonParser;
+import org.kantega.kson.parser.JsonWriter;
 
-import static org.kantega.kson.json.JsonValues.jBool;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.kantega.kson.json.JsonValues.*;
 
 public class ReadWriteTest {
 
@@ -24,5 +39,93 @@ public class ReadWriteTest {
         Assert.assertTrue(jObject.get("flag").some().equals(jBool(false)));
     }
 
+    @Test
+    public void writeCompactAndPretty() {
+        JsonValue json = JsonParser.parse("{\"b\": [1.50, 1e2, \"\\u0001\\u2028\"], \"a\": {}, \"c\": []}").orThrow();
+
+        Assert.assertEquals("{\"a\":{},\"b\":[1.50,1E+2,\"\\u0001\\u2028\"],\"c\":[]}", JsonWriter.write(json));
+        Assert.assertEquals(
+          "{\n  \"a\":{\n\n  },\n  \"b\":[\n    1.50,\n    1E+2,\n    \"\\u0001\\u2028\"\n  ],\n  \"c\":[]\n}",
+          JsonWriter.writePretty(json));
+    }
+
+    @Test
+    public void writeToWriterAndStream() throws IOException {
+        JsonValue json = jArray(Stream.range(0, 5000).map(i -> jObj(field("id", i), field("name", "\u00e6\"" + i))).toList());
+
+        StringWriter          writer = new StringWriter();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        JsonWriter.writePretty(json, writer);
+        JsonWriter.write(json, stream);
+
+        Assert.assertEquals(JsonWriter.writePretty(json), writer.toString());
+        Assert.assertEquals(JsonWriter.write(json), new String(stream.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void writeUtf8() {
+        JsonValue json = jObj(field("n\u00e6vn", jArray(jString("\ud83d\ude00 \u2028\u20ac"), jString("\ud83d"), jNull())));
+
+        byte[]     expected = JsonWriter.write(json).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer   = ByteBuffer.allocate(expected.length);
+        JsonWriter.write(json, buffer);
+
+        Assert.assertArrayEquals(expected, JsonWriter.writeUtf8(json));
+        Assert.assertArrayEquals(expected, buffer.array());
+        Assert.assertEquals(expected.length, buffer.position());
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    public void writeUtf8ToSmallBuffer() {
+        JsonWriter.write(jString("too long"), ByteBuffer.allocate(4));
+    }
+
+    @Test
+    public void offsetsPastTwoGigabytesAreReportedWhole() {
+        long        blanks = (1L << 31) + 10;
+        InputStream in     = new InputStream() {
+            long position;
+
+            @Override
+            public int read() {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) == -1 ? -1 : one[0];
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) {
+                if (position > blanks) {
+                    return -1;
+                }
+                int count = (int) Math.min(length, blanks - position);
+                if (count == 0) {
+                    bytes[offset] = 'x';
+                    position++;
+                    return 1;
+                }
+                Arrays.fill(bytes, offset, offset + count, (byte) ' ');
+                position += count;
+                return count;
+            }
+        };
+
+        Assert.assertEquals(
+          "Failed to parse resource: Expected value: line 1, " + blanks + ", i" + blanks,
+          JsonParser.parse(in).fold(message -> message, value -> "parsed " + value));
+    }
 
+    @Test
+    public void filesTooLargeForAnArrayAreParsedSequentially() throws IOException {
+        Path file = Files.createTempFile("kson", ".json");
+        try {
+            try (RandomAccessFile sparse = new RandomAccessFile(file.toFile(), "rw")) {
+                sparse.setLength(3L << 30);
+            }
+            ForkJoinPool pool = new ForkJoinPool(2);
+            Assert.assertEquals(JsonParser.parse(file).toString(), JsonParser.parseParallel(file, pool).toString());
+            pool.shutdown();
+        } finally {
+            Files.delete(file);
+        }
+    }
 }
@@ -0,0 +1,32 @@
+package org.kantega.kson.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kantega.kson.parser.JsonTape;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.kantega.kson.json.JsonValues.*;
+
+public class TapeTest {
+
+    final JsonTape tape =
+      JsonTape.parse("{\"a\":\"x\",\"q\":1,\"\\u00e6\":2,\"ab\":3}".getBytes(StandardCharsets.UTF_8)).orThrow();
+
+    @Test
+    public void fieldNamesMustMatchTheWholeKey() {
+        Assert.assertFalse(tape.field("a\":\"x").isSuccess());
+        Assert.assertFalse(tape.field("a\"").isSuccess());
+        Assert.assertFalse(tape.field("").isSuccess());
+        Assert.assertFalse(tape.field("abc").isSuccess());
+        Assert.assertEquals(jString("x"), tape.field("a").orThrow().toJsonValue());
+        Assert.assertEquals(jNum(3L), tape.field("ab").orThrow().toJsonValue());
+        Assert.assertEquals(jNum(2L), tape.field("\u00e6").orThrow().toJsonValue());
+    }
+
+    @Test
+    public void namesLongerThanTheLastKeyDoNotReadPastTheInput() {
+        JsonTape last = JsonTape.parse("{\"k\":1}".getBytes(StandardCharsets.UTF_8)).orThrow();
+        Assert.assertFalse(last.field("k\":1}and more").isSuccess());
+    }
+}